@@ -0,0 +1,276 @@
+package com.jbion.android.lib.list;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.RandomAccess;
+
+/**
+ * A list of items stored in fixed-size chunks, meant to be the data of the adapter
+ * of a list that grows at both ends.
+ * <p>
+ * Getting or setting the item at any position takes constant time, as in an
+ * {@link java.util.ArrayList}, so that it can back an
+ * {@link android.widget.ArrayAdapter}. Inserting or removing items at either end
+ * takes amortized constant time per item, as in a {@link java.util.LinkedList},
+ * so that prepending the items of a refresh does not shift all the others.
+ * Inserting or removing items elsewhere shifts the items on the shorter side.
+ * </p>
+ * <p>
+ * The chunks are referenced by a directory, which has free room at both ends. A
+ * full directory is copied into a larger one, which only copies the references
+ * to the chunks, not the items. The chunks that no longer hold any item are
+ * released. This list is not thread-safe.
+ * </p>
+ * 
+ * @param <T>
+ *            The type of the items.
+ */
+public class ChunkedList<T> extends AbstractList<T> implements RandomAccess {
+
+    private static final int CHUNK_SHIFT = 6;
+    private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    /** The chunks, of which only the ones holding items are allocated. */
+    private Object[][] chunks;
+    /** The slot of the first item, a slot being a position across all the chunks. */
+    private int head;
+    private int size;
+
+    /**
+     * Creates a new empty {@link ChunkedList}.
+     */
+    public ChunkedList() {
+        init();
+    }
+
+    /**
+     * Creates a new {@link ChunkedList} containing the items of the specified
+     * collection, in the order of its iterator.
+     */
+    public ChunkedList(Collection<? extends T> items) {
+        init();
+        addAll(items);
+    }
+
+    private void init() {
+        chunks = new Object[2][];
+        head = CHUNK_SIZE;
+        size = 0;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T get(int position) {
+        checkPosition(position, size - 1);
+        int slot = head + position;
+        return (T) chunks[slot >>> CHUNK_SHIFT][slot & CHUNK_MASK];
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T set(int position, T item) {
+        checkPosition(position, size - 1);
+        int slot = head + position;
+        Object[] chunk = chunks[slot >>> CHUNK_SHIFT];
+        T previous = (T) chunk[slot & CHUNK_MASK];
+        chunk[slot & CHUNK_MASK] = item;
+        return previous;
+    }
+
+    @Override
+    public void add(int position, T item) {
+        checkPosition(position, size);
+        int slot = openGap(position, 1);
+        chunkForWrite(slot)[slot & CHUNK_MASK] = item;
+    }
+
+    @Override
+    public boolean addAll(Collection<? extends T> items) {
+        return addAll(size, items);
+    }
+
+    @Override
+    public boolean addAll(int position, Collection<? extends T> items) {
+        checkPosition(position, size);
+        Object[] added = items.toArray();
+        if (added.length == 0) {
+            return false;
+        }
+        int slot = openGap(position, added.length);
+        int copied = 0;
+        while (copied < added.length) {
+            int offset = slot & CHUNK_MASK;
+            int count = Math.min(added.length - copied, CHUNK_SIZE - offset);
+            System.arraycopy(added, copied, chunkForWrite(slot), offset, count);
+            copied += count;
+            slot += count;
+        }
+        return true;
+    }
+
+    @Override
+    public T remove(int position) {
+        T item = get(position);
+        removeRange(position, position + 1);
+        return item;
+    }
+
+    /**
+     * Removes the items from {@code fromPosition} inclusive to {@code toPosition}
+     * exclusive, shifting the items on the shorter side. This is also what
+     * {@code subList(fromPosition, toPosition).clear()} does.
+     */
+    @Override
+    protected void removeRange(int fromPosition, int toPosition) {
+        checkPosition(fromPosition, size);
+        checkPosition(toPosition, size);
+        int count = toPosition - fromPosition;
+        if (count <= 0) {
+            return;
+        }
+        modCount++;
+        if (fromPosition < size - toPosition) {
+            // fewer items before the range
+            moveSlots(head, head + count, fromPosition);
+            int oldHead = head;
+            head += count;
+            size -= count;
+            releaseSlots(oldHead, head);
+        } else {
+            moveSlots(head + toPosition, head + fromPosition, size - toPosition);
+            int oldEnd = head + size;
+            size -= count;
+            releaseSlots(head + size, oldEnd);
+        }
+    }
+
+    @Override
+    public void clear() {
+        modCount++;
+        init();
+    }
+
+    private void checkPosition(int position, int max) {
+        if (position < 0 || position > max) {
+            throw new IndexOutOfBoundsException("position " + position + ", size " + size);
+        }
+    }
+
+    /**
+     * Makes room for {@code count} items at the specified position, shifting the
+     * items on the shorter side.
+     * 
+     * @return The slot of the first item of the gap.
+     */
+    private int openGap(int position, int count) {
+        modCount++;
+        if (position < size - position) {
+            reserve(count, 0);
+            moveSlots(head, head - count, position);
+            head -= count;
+        } else {
+            reserve(0, count);
+            moveSlots(head + position, head + position + count, size - position);
+        }
+        size += count;
+        return head + position;
+    }
+
+    /**
+     * Ensures that there are at least {@code front} free slots before the first
+     * item and {@code back} free slots after the last item, growing the directory
+     * if necessary.
+     */
+    private void reserve(int front, int back) {
+        int end = head + size;
+        if (head >= front && (chunks.length << CHUNK_SHIFT) - end >= back) {
+            return;
+        }
+        int firstChunk = head >>> CHUNK_SHIFT;
+        int usedChunks = ((end + CHUNK_MASK) >>> CHUNK_SHIFT) - firstChunk;
+        // leave room for half as many items again at each end, for the next insertions
+        int slack = usedChunks / 2 + 1;
+        int newFirstChunk = ((front + CHUNK_MASK) >>> CHUNK_SHIFT) + slack;
+        int backChunks = ((back + CHUNK_MASK) >>> CHUNK_SHIFT) + slack;
+        Object[][] newChunks = new Object[newFirstChunk + usedChunks + backChunks][];
+        System.arraycopy(chunks, firstChunk, newChunks, newFirstChunk, usedChunks);
+        chunks = newChunks;
+        head += (newFirstChunk - firstChunk) << CHUNK_SHIFT;
+    }
+
+    /**
+     * Returns the chunk of the specified slot, allocating it if necessary.
+     */
+    private Object[] chunkForWrite(int slot) {
+        int index = slot >>> CHUNK_SHIFT;
+        Object[] chunk = chunks[index];
+        if (chunk == null) {
+            chunk = new Object[CHUNK_SIZE];
+            chunks[index] = chunk;
+        }
+        return chunk;
+    }
+
+    /**
+     * Moves the items of {@code count} slots from the slot {@code from} to the slot
+     * {@code to}. The ranges may overlap.
+     */
+    private void moveSlots(int from, int to, int count) {
+        if (count == 0 || from == to) {
+            return;
+        }
+        if (to < from) {
+            while (count > 0) {
+                int fromOffset = from & CHUNK_MASK;
+                int toOffset = to & CHUNK_MASK;
+                int n = Math.min(count, CHUNK_SIZE - Math.max(fromOffset, toOffset));
+                System.arraycopy(chunks[from >>> CHUNK_SHIFT], fromOffset, chunkForWrite(to),
+                        toOffset, n);
+                from += n;
+                to += n;
+                count -= n;
+            }
+        } else {
+            // backwards, so that overlapping items are read before being overwritten
+            int fromEnd = from + count;
+            int toEnd = to + count;
+            while (count > 0) {
+                int fromOffset = ((fromEnd - 1) & CHUNK_MASK) + 1;
+                int toOffset = ((toEnd - 1) & CHUNK_MASK) + 1;
+                int n = Math.min(count, Math.min(fromOffset, toOffset));
+                System.arraycopy(chunks[(fromEnd - 1) >>> CHUNK_SHIFT], fromOffset - n,
+                        chunkForWrite(toEnd - 1), toOffset - n, n);
+                fromEnd -= n;
+                toEnd -= n;
+                count -= n;
+            }
+        }
+    }
+
+    /**
+     * Clears the slots from {@code from} inclusive to {@code to} exclusive, which
+     * no longer hold items, and releases their chunks that no longer hold any.
+     */
+    private void releaseSlots(int from, int to) {
+        int end = head + size;
+        while (from < to) {
+            int index = from >>> CHUNK_SHIFT;
+            int chunkStart = index << CHUNK_SHIFT;
+            int chunkEnd = chunkStart + CHUNK_SIZE;
+            if (chunkEnd <= head || chunkStart >= end) {
+                chunks[index] = null;
+            } else {
+                Arrays.fill(chunks[index], from & CHUNK_MASK,
+                        Math.min(to, chunkEnd) - chunkStart, null);
+            }
+            from = Math.min(to, chunkEnd);
+        }
+    }
+}
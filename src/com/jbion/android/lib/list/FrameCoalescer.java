@@ -0,0 +1,87 @@
+package com.jbion.android.lib.list;
+
+import android.annotation.TargetApi;
+import android.os.Build;
+import android.view.View;
+
+/**
+ * Coalesces an update requested several times per frame, so that it is run only
+ * once per frame, with the latest state. This bounds the work done for touch moves
+ * on high-rate digitizers, which deliver several {@code ACTION_MOVE} events per
+ * frame.
+ * <p>
+ * On API 16+, the update runs at the next animation frame, before the layout and
+ * drawing passes of this frame. On older versions, it is posted on the view's
+ * message queue.
+ * </p>
+ */
+public class FrameCoalescer {
+
+    private final View view;
+    private final Runnable update;
+    private boolean scheduled;
+
+    private final Runnable frameRunnable = new Runnable() {
+        @Override
+        public void run() {
+            scheduled = false;
+            update.run();
+        }
+    };
+
+    /**
+     * Creates a new {@link FrameCoalescer}.
+     * 
+     * @param view
+     *            The view to post the update on.
+     * @param update
+     *            The update to run once per frame. It should read the latest state
+     *            recorded by the caller.
+     */
+    public FrameCoalescer(View view, Runnable update) {
+        this.view = view;
+        this.update = update;
+    }
+
+    /**
+     * Requests the update to run on the next frame. Does nothing if it is already
+     * scheduled.
+     */
+    public void schedule() {
+        if (!scheduled) {
+            scheduled = true;
+            postOnNextFrame();
+        }
+    }
+
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+    private void postOnNextFrame() {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+            view.postOnAnimation(frameRunnable);
+        } else {
+            view.post(frameRunnable);
+        }
+    }
+
+    /**
+     * Runs the scheduled update right away, if any. Call this before acting on the
+     * final state of a gesture.
+     */
+    public void flush() {
+        if (scheduled) {
+            view.removeCallbacks(frameRunnable);
+            scheduled = false;
+            update.run();
+        }
+    }
+
+    /**
+     * Drops the scheduled update, if any.
+     */
+    public void cancel() {
+        if (scheduled) {
+            view.removeCallbacks(frameRunnable);
+            scheduled = false;
+        }
+    }
+}
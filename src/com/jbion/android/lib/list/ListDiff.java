@@ -0,0 +1,705 @@
+package com.jbion.android.lib.list;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * The differences between two lists of items, as a sequence of insertions,
+ * removals, moves and changes of items.
+ * <p>
+ * The operations are meant to be applied in order: the position of each of them
+ * is relative to the list as modified by the previous ones. Applying all of them
+ * to the old list gives the new list. The removals come first, then the moves,
+ * the insertions, and the changes.
+ * </p>
+ * <p>
+ * Items are matched by their ID, which must be unique in each list. The items
+ * that stay in place are the longest sequence of common items keeping their
+ * relative order, so that the fewest items are moved. Computing a diff takes
+ * linear time when the lists share a prefix and a suffix around a single edited
+ * range, and O(n log n) time otherwise. It can be done on any thread. For large
+ * lists, the IDs and the contents of the items are compared on several threads.
+ * </p>
+ */
+public final class ListDiff {
+
+    /**
+     * Gives the identity and compares the contents of the items of the lists to
+     * compare. For large lists, its methods are called from several threads at
+     * once.
+     * 
+     * @param <T>
+     *            The type of the items.
+     */
+    public static interface ItemCallback<T> {
+
+        /**
+         * Returns the stable ID of the specified item, which identifies the same
+         * item in the old and the new list.
+         */
+        public long getItemId(T item);
+
+        /**
+         * Returns whether the specified items, which have the same ID, are displayed
+         * the same way. If not, the item is reported as changed.
+         */
+        public boolean areContentsTheSame(T oldItem, T newItem);
+    }
+
+    /**
+     * Types of operations.
+     */
+    public static enum Type {
+        /** Items were inserted. */
+        INSERT,
+        /** Items were removed. */
+        REMOVE,
+        /** An item was moved. */
+        MOVE,
+        /** The contents of items changed. */
+        CHANGE
+    }
+
+    /**
+     * An operation on a range of items.
+     */
+    public static final class Op {
+
+        private final Type type;
+        private final int position;
+        private final int toPosition;
+        private int count;
+
+        private Op(Type type, int position, int toPosition) {
+            this.type = type;
+            this.position = position;
+            this.toPosition = toPosition;
+            this.count = 1;
+        }
+
+        public Type getType() {
+            return type;
+        }
+
+        /**
+         * Returns the position of the first item of the range, in the list as
+         * modified by the previous operations. For insertions and changes, this is
+         * also the position of the item in the new list. For moves, this is the
+         * position the item is moved from.
+         */
+        public int getPosition() {
+            return position;
+        }
+
+        /**
+         * Returns the position a moved item is moved to, in the list without this
+         * item. Only meaningful for moves.
+         */
+        public int getToPosition() {
+            return toPosition;
+        }
+
+        /**
+         * Returns the number of items of the range, which is always 1 for moves.
+         */
+        public int getCount() {
+            return count;
+        }
+
+        @Override
+        public String toString() {
+            if (type == Type.MOVE) {
+                return type + "(" + position + " -> " + toPosition + ")";
+            }
+            return type + "(" + position + ", " + count + ")";
+        }
+    }
+
+    /** The number of items above which the items are compared on several threads. */
+    private static final int PARALLEL_THRESHOLD = 16384;
+    private static final int THREADS = Runtime.getRuntime().availableProcessors();
+
+    /** Runs the comparisons of large lists, created when first needed. */
+    private static ExecutorService executor;
+
+    private static final ListDiff EMPTY = new ListDiff(Collections.<Op> emptyList(), false,
+            false);
+
+    private final List<Op> ops;
+    private final boolean structural;
+    private final boolean moves;
+
+    private ListDiff(List<Op> ops, boolean structural, boolean moves) {
+        this.ops = ops;
+        this.structural = structural;
+        this.moves = moves;
+    }
+
+    /**
+     * Computes the differences between the specified lists.
+     * 
+     * @param oldItems
+     *            The old list.
+     * @param newItems
+     *            The new list.
+     * @param callback
+     *            The callback giving the IDs and comparing the items.
+     * @return The operations transforming {@code oldItems} into {@code newItems}.
+     */
+    public static <T> ListDiff calculate(List<T> oldItems, List<T> newItems,
+            ItemCallback<T> callback) {
+        oldItems = randomAccess(oldItems);
+        newItems = randomAccess(newItems);
+        int oldSize = oldItems.size();
+        int newSize = newItems.size();
+        long[] oldIds = getIds(oldItems, callback);
+        long[] newIds = getIds(newItems, callback);
+
+        // common prefix and suffix, by ID
+        int start = 0;
+        while (start < oldSize && start < newSize && oldIds[start] == newIds[start]) {
+            start++;
+        }
+        int oldEnd = oldSize;
+        int newEnd = newSize;
+        while (oldEnd > start && newEnd > start && oldIds[oldEnd - 1] == newIds[newEnd - 1]) {
+            oldEnd--;
+            newEnd--;
+        }
+
+        // the old position of each new item, -1 for the inserted ones
+        int[] oldPositions = new int[newSize];
+        for (int i = 0; i < start; i++) {
+            oldPositions[i] = i;
+        }
+        for (int i = 0; i < oldSize - oldEnd; i++) {
+            oldPositions[newEnd + i] = oldEnd + i;
+        }
+        Builder builder = new Builder();
+        int[] middle = matchMiddle(oldIds, newIds, start, oldEnd, newEnd);
+        if (middle == null) {
+            // duplicate IDs, replace the whole range
+            for (int j = start; j < newEnd; j++) {
+                oldPositions[j] = -1;
+            }
+            builder.remove(start, oldEnd - start);
+            builder.insert(start, newEnd - start);
+        } else {
+            diffMiddle(middle, start, newEnd - start, oldPositions, builder);
+        }
+
+        boolean[] changed = getChanges(oldItems, newItems, oldPositions, callback);
+        for (int j = 0; j < newSize; j++) {
+            if (changed[j]) {
+                builder.change(j);
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * Matches the items of the range {@code [start, oldEnd)} of the old list with
+     * the ones of the range {@code [start, newEnd)} of the new list.
+     * 
+     * @return The position of each old item of the range in the new range,
+     *         relative to {@code start}, or -1 if it was removed. {@code null} if
+     *         an ID is not unique.
+     */
+    private static int[] matchMiddle(long[] oldIds, long[] newIds, int start, int oldEnd,
+            int newEnd) {
+        IdIndex newIndex = new IdIndex(newEnd - start);
+        for (int j = start; j < newEnd; j++) {
+            if (!newIndex.put(newIds[j], j - start)) {
+                return null;
+            }
+        }
+        boolean[] matched = new boolean[newEnd - start];
+        int[] newPositions = new int[oldEnd - start];
+        for (int i = start; i < oldEnd; i++) {
+            int j = newIndex.get(oldIds[i]);
+            if (j >= 0) {
+                if (matched[j]) {
+                    return null;
+                }
+                matched[j] = true;
+            }
+            newPositions[i - start] = j;
+        }
+        return newPositions;
+    }
+
+    /**
+     * Adds the removals, moves and insertions transforming the middle range of the
+     * old list into the middle range of the new list, and fills the old positions
+     * of the common items.
+     * 
+     * @param newPositions
+     *            The new position of each old item of the range, as returned by
+     *            {@link #matchMiddle(long[], long[], int, int, int)}.
+     * @param start
+     *            The position of the range.
+     * @param newCount
+     *            The size of the new range.
+     * @param oldPositions
+     *            The old position of each item of the new list, to fill.
+     * @param builder
+     *            The builder to add the operations to.
+     */
+    private static void diffMiddle(int[] newPositions, int start, int newCount,
+            int[] oldPositions, Builder builder) {
+        for (int j = 0; j < newCount; j++) {
+            oldPositions[start + j] = -1;
+        }
+        // removals, leaving the common items in their old order
+        int common = 0;
+        for (int i = 0; i < newPositions.length; i++) {
+            if (newPositions[i] < 0) {
+                builder.remove(start + common, 1);
+            } else {
+                oldPositions[start + newPositions[i]] = start + i;
+                newPositions[common++] = newPositions[i];
+            }
+        }
+
+        // ranks of the common items in the new order, in their old order
+        int[] rankOfPosition = new int[newCount];
+        int rank = 0;
+        for (int j = 0; j < newCount; j++) {
+            rankOfPosition[j] = oldPositions[start + j] >= 0 ? rank++ : -1;
+        }
+        int[] ranks = new int[common];
+        int[] indexOfRank = new int[common];
+        for (int c = 0; c < common; c++) {
+            ranks[c] = rankOfPosition[newPositions[c]];
+            indexOfRank[ranks[c]] = c;
+        }
+        addMoves(ranks, indexOfRank, start, builder);
+
+        // insertions, in the new order
+        for (int j = 0; j < newCount; j++) {
+            if (rankOfPosition[j] < 0) {
+                builder.insert(start + j, 1);
+            }
+        }
+    }
+
+    /**
+     * Adds the moves sorting the common items by rank. The items of the longest
+     * increasing sequence of ranks stay in place, and the others are moved, by
+     * increasing rank, right after the item of the previous rank.
+     * 
+     * @param ranks
+     *            The ranks of the common items, in their current order.
+     * @param indexOfRank
+     *            The current index of the item of each rank.
+     * @param start
+     *            The position of the first common item.
+     * @param builder
+     *            The builder to add the moves to.
+     */
+    private static void addMoves(int[] ranks, int[] indexOfRank, int start, Builder builder) {
+        int count = ranks.length;
+        boolean[] stays = longestIncreasingSequence(ranks);
+
+        /*
+         * Each moved item goes after the closest item staying in place before it in
+         * the new order (its anchor), or at the beginning if there is none. The
+         * current order is then: the moved items anchored at the beginning, then for
+         * each item its own slot, followed by the moved items anchored to it.
+         */
+        int[] anchors = new int[count];
+        int[] groupSizes = new int[count + 1];
+        int anchor = -1;
+        int moved = 0;
+        for (int r = 0; r < count; r++) {
+            int index = indexOfRank[r];
+            if (stays[index]) {
+                anchor = index;
+            } else {
+                anchors[index] = anchor;
+                groupSizes[anchor + 1]++;
+                moved++;
+            }
+        }
+        if (moved == 0) {
+            return;
+        }
+        int[] groupStarts = new int[count + 1];
+        int[] ownSlots = new int[count];
+        int slot = groupSizes[0];
+        for (int c = 0; c < count; c++) {
+            ownSlots[c] = slot++;
+            groupStarts[c + 1] = slot;
+            slot += groupSizes[c + 1];
+        }
+        Fenwick occupied = new Fenwick(slot);
+        for (int c = 0; c < count; c++) {
+            occupied.add(ownSlots[c], 1);
+        }
+        for (int r = 0; r < count; r++) {
+            int index = indexOfRank[r];
+            if (stays[index]) {
+                continue;
+            }
+            int from = occupied.sum(ownSlots[index]);
+            occupied.add(ownSlots[index], -1);
+            int target = groupStarts[anchors[index] + 1]++;
+            int to = occupied.sum(target);
+            occupied.add(target, 1);
+            if (from != to) {
+                builder.move(start + from, start + to);
+            }
+        }
+    }
+
+    /**
+     * Returns which of the specified distinct values form a longest increasing
+     * subsequence, in O(n log n) time.
+     */
+    private static boolean[] longestIncreasingSequence(int[] values) {
+        int n = values.length;
+        int[] tails = new int[n];
+        int[] previous = new int[n];
+        int length = 0;
+        for (int i = 0; i < n; i++) {
+            int lo = 0;
+            int hi = length;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (values[tails[mid]] < values[i]) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            previous[i] = lo > 0 ? tails[lo - 1] : -1;
+            tails[lo] = i;
+            if (lo == length) {
+                length++;
+            }
+        }
+        boolean[] inSequence = new boolean[n];
+        for (int i = length > 0 ? tails[length - 1] : -1; i >= 0; i = previous[i]) {
+            inSequence[i] = true;
+        }
+        return inSequence;
+    }
+
+    private static <T> long[] getIds(final List<T> items, final ItemCallback<T> callback) {
+        final long[] ids = new long[items.size()];
+        forEachChunk(ids.length, new Chunk() {
+            @Override
+            public void run(int from, int to) {
+                for (int i = from; i < to; i++) {
+                    ids[i] = callback.getItemId(items.get(i));
+                }
+            }
+        });
+        return ids;
+    }
+
+    private static <T> boolean[] getChanges(final List<T> oldItems, final List<T> newItems,
+            final int[] oldPositions, final ItemCallback<T> callback) {
+        final boolean[] changed = new boolean[newItems.size()];
+        forEachChunk(changed.length, new Chunk() {
+            @Override
+            public void run(int from, int to) {
+                for (int j = from; j < to; j++) {
+                    int i = oldPositions[j];
+                    changed[j] = i >= 0
+                            && !callback.areContentsTheSame(oldItems.get(i), newItems.get(j));
+                }
+            }
+        });
+        return changed;
+    }
+
+    private static <T> List<T> randomAccess(List<T> items) {
+        return items instanceof RandomAccess ? items : new ArrayList<T>(items);
+    }
+
+    /**
+     * A part of the work on a range of indices.
+     */
+    private static interface Chunk {
+        public void run(int from, int to);
+    }
+
+    /**
+     * Runs the specified work on the indices {@code [0, size)}, split in several
+     * chunks running in parallel if the size is large enough.
+     */
+    private static void forEachChunk(int size, final Chunk chunk) {
+        if (size < PARALLEL_THRESHOLD || THREADS < 2) {
+            chunk.run(0, size);
+            return;
+        }
+        List<Callable<Void>> tasks = new ArrayList<Callable<Void>>(THREADS);
+        int chunkSize = (size + THREADS - 1) / THREADS;
+        for (int from = 0; from < size; from += chunkSize) {
+            final int start = from;
+            final int end = Math.min(size, from + chunkSize);
+            tasks.add(new Callable<Void>() {
+                @Override
+                public Void call() {
+                    chunk.run(start, end);
+                    return null;
+                }
+            });
+        }
+        try {
+            for (Future<Void> future : getExecutor().invokeAll(tasks)) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while computing a diff", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    private static synchronized ExecutorService getExecutor() {
+        if (executor == null) {
+            executor = Executors.newFixedThreadPool(THREADS, new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, ListDiff.class.getSimpleName());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return executor;
+    }
+
+    /**
+     * Returns the operations of this diff, in the order they have to be applied.
+     */
+    public List<Op> getOps() {
+        return ops;
+    }
+
+    /**
+     * Returns whether the two lists are displayed the same way.
+     */
+    public boolean isEmpty() {
+        return ops.isEmpty();
+    }
+
+    /**
+     * Returns whether this diff inserts, removes or moves items, as opposed to only
+     * changing some.
+     */
+    public boolean hasStructuralChanges() {
+        return structural;
+    }
+
+    /**
+     * Applies this diff to the specified list, which must contain the items of the
+     * old list. If the diff moves items, the content of the list is simply
+     * replaced, since moving items one by one in a list is not cheaper.
+     * 
+     * @param items
+     *            The list to modify.
+     * @param newItems
+     *            The new list, from which the inserted and changed items are taken.
+     */
+    public <T> void applyTo(List<T> items, List<T> newItems) {
+        if (moves) {
+            items.clear();
+            items.addAll(newItems);
+            return;
+        }
+        for (Op op : ops) {
+            int start = op.getPosition();
+            int end = start + op.getCount();
+            switch (op.getType()) {
+            case INSERT:
+                items.addAll(start, newItems.subList(start, end));
+                break;
+            case REMOVE:
+                items.subList(start, end).clear();
+                break;
+            case MOVE:
+                items.add(op.getToPosition(), items.remove(start));
+                break;
+            case CHANGE:
+                for (int i = start; i < end; i++) {
+                    items.set(i, newItems.get(i));
+                }
+                break;
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return ops.toString();
+    }
+
+    /**
+     * Accumulates operations, merging the consecutive insertions, removals and
+     * changes of adjacent items.
+     */
+    private static class Builder {
+
+        private final List<Op> ops = new ArrayList<Op>();
+        private boolean structural = false;
+        private boolean moves = false;
+
+        public void insert(int position, int count) {
+            if (count <= 0) {
+                return;
+            }
+            Op last = last();
+            if (last != null && last.type == Type.INSERT
+                    && last.position + last.count == position) {
+                last.count += count;
+            } else {
+                add(new Op(Type.INSERT, position, -1), count);
+            }
+            structural = true;
+        }
+
+        public void remove(int position, int count) {
+            if (count <= 0) {
+                return;
+            }
+            Op last = last();
+            if (last != null && last.type == Type.REMOVE && last.position == position) {
+                last.count += count;
+            } else {
+                add(new Op(Type.REMOVE, position, -1), count);
+            }
+            structural = true;
+        }
+
+        public void move(int from, int to) {
+            add(new Op(Type.MOVE, from, to), 1);
+            structural = true;
+            moves = true;
+        }
+
+        public void change(int position) {
+            Op last = last();
+            if (last != null && last.type == Type.CHANGE
+                    && last.position + last.count == position) {
+                last.count++;
+            } else {
+                add(new Op(Type.CHANGE, position, -1), 1);
+            }
+        }
+
+        public ListDiff build() {
+            return ops.isEmpty() ? EMPTY : new ListDiff(Collections.unmodifiableList(ops),
+                    structural, moves);
+        }
+
+        private void add(Op op, int count) {
+            op.count = count;
+            ops.add(op);
+        }
+
+        private Op last() {
+            return ops.isEmpty() ? null : ops.get(ops.size() - 1);
+        }
+    }
+
+    /**
+     * Map of long IDs to int positions, with open addressing in primitive arrays,
+     * to avoid boxing every ID of large lists.
+     */
+    private static class IdIndex {
+        private final long[] keys;
+        private final int[] values;
+        private final int mask;
+
+        IdIndex(int size) {
+            int capacity = 4;
+            while (capacity < 2 * size) {
+                capacity <<= 1;
+            }
+            keys = new long[capacity];
+            values = new int[capacity];
+            mask = capacity - 1;
+            Arrays.fill(values, -1);
+        }
+
+        private int indexOf(long key) {
+            int h = (int) (key ^ (key >>> 32)) * 0x9E3779B9;
+            int i = (h ^ (h >>> 16)) & mask;
+            while (values[i] >= 0 && keys[i] != key) {
+                i = (i + 1) & mask;
+            }
+            return i;
+        }
+
+        /**
+         * Maps the specified key to the specified non-negative value.
+         * 
+         * @return {@code false} if the key was already mapped.
+         */
+        boolean put(long key, int value) {
+            int i = indexOf(key);
+            if (values[i] >= 0) {
+                return false;
+            }
+            keys[i] = key;
+            values[i] = value;
+            return true;
+        }
+
+        /**
+         * Returns the value of the specified key, or -1 if it is not mapped.
+         */
+        int get(long key) {
+            return values[indexOf(key)];
+        }
+    }
+
+    /**
+     * Fenwick tree of counts, to find the current position of the slots of a
+     * sequence in which items are moved.
+     */
+    private static class Fenwick {
+        private final int[] tree;
+
+        Fenwick(int size) {
+            tree = new int[size + 1];
+        }
+
+        void add(int index, int delta) {
+            for (int i = index + 1; i < tree.length; i += i & -i) {
+                tree[i] += delta;
+            }
+        }
+
+        /**
+         * Returns the sum of the counts of the indices {@code [0, index)}.
+         */
+        int sum(int index) {
+            int sum = 0;
+            for (int i = index; i > 0; i -= i & -i) {
+                sum += tree[i];
+            }
+            return sum;
+        }
+    }
+}
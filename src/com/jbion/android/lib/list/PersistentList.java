@@ -0,0 +1,356 @@
+package com.jbion.android.lib.list;
+
+import java.util.AbstractList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * An immutable list, of which modified versions are derived without copying it.
+ * <p>
+ * The items are stored in a balanced tree. Each modification returns a new list
+ * sharing all the nodes of this one but the ones on the path to the modified
+ * position, so that it takes O(log n) time and memory: getting, replacing,
+ * inserting or removing an item, appending or prepending items, and taking a
+ * sublist. The previous versions are left untouched.
+ * </p>
+ * <p>
+ * Since they never change, the versions can be freely shared between threads: a
+ * background loader can derive a new version from the current one while the UI
+ * thread is still reading it, and the new version can then be published to the
+ * adapter at once on the UI thread, for instance via a {@link VersionedList}.
+ * </p>
+ * <p>
+ * The methods of {@link java.util.List} that modify the list throw an
+ * {@link UnsupportedOperationException}.
+ * </p>
+ * 
+ * @param <T>
+ *            The type of the items.
+ */
+public final class PersistentList<T> extends AbstractList<T> {
+
+    private static final PersistentList<Object> EMPTY = new PersistentList<Object>(null);
+
+    private static final class Node<T> {
+
+        private final Node<T> left;
+        private final T item;
+        private final Node<T> right;
+        private final int size;
+        private final int height;
+
+        private Node(Node<T> left, T item, Node<T> right) {
+            this.left = left;
+            this.item = item;
+            this.right = right;
+            this.size = size(left) + 1 + size(right);
+            this.height = Math.max(height(left), height(right)) + 1;
+        }
+    }
+
+    private final Node<T> root;
+
+    private PersistentList(Node<T> root) {
+        this.root = root;
+    }
+
+    /**
+     * Returns the empty list.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> PersistentList<T> empty() {
+        return (PersistentList<T>) EMPTY;
+    }
+
+    /**
+     * Returns a list of the items of the specified collection, in the order of its
+     * iterator. This takes linear time, unless the collection is already a
+     * {@link PersistentList}, which is returned as is.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> PersistentList<T> copyOf(Collection<? extends T> items) {
+        if (items instanceof PersistentList) {
+            return (PersistentList<T>) items;
+        }
+        Object[] array = items.toArray();
+        return of(PersistentList.<T> build(array, 0, array.length));
+    }
+
+    private static <T> PersistentList<T> of(Node<T> root) {
+        return root == null ? PersistentList.<T> empty() : new PersistentList<T>(root);
+    }
+
+    @Override
+    public int size() {
+        return size(root);
+    }
+
+    @Override
+    public T get(int position) {
+        checkPosition(position, size() - 1);
+        Node<T> node = root;
+        while (true) {
+            int leftSize = size(node.left);
+            if (position < leftSize) {
+                node = node.left;
+            } else if (position > leftSize) {
+                position -= leftSize + 1;
+                node = node.right;
+            } else {
+                return node.item;
+            }
+        }
+    }
+
+    /**
+     * Returns a list with the specified item in place of the item at the specified
+     * position.
+     */
+    public PersistentList<T> replace(int position, T item) {
+        checkPosition(position, size() - 1);
+        return new PersistentList<T>(replace(root, position, item));
+    }
+
+    /**
+     * Returns a list with the specified item inserted at the specified position.
+     */
+    public PersistentList<T> insert(int position, T item) {
+        checkPosition(position, size());
+        return of(join(take(root, position), item, drop(root, position)));
+    }
+
+    /**
+     * Returns a list with the specified item added at the end.
+     */
+    public PersistentList<T> append(T item) {
+        return of(join(root, item, null));
+    }
+
+    /**
+     * Returns a list with the specified item added at the beginning.
+     */
+    public PersistentList<T> prepend(T item) {
+        return of(join(null, item, root));
+    }
+
+    /**
+     * Returns a list with the items of the specified collection added at the end,
+     * in the order of its iterator.
+     */
+    public PersistentList<T> appendAll(Collection<? extends T> items) {
+        PersistentList<T> suffix = copyOf(items);
+        return of(concat(root, suffix.root));
+    }
+
+    /**
+     * Returns a list with the items of the specified collection added at the
+     * beginning, in the order of its iterator.
+     */
+    public PersistentList<T> prependAll(Collection<? extends T> items) {
+        PersistentList<T> prefix = copyOf(items);
+        return of(concat(prefix.root, root));
+    }
+
+    /**
+     * Returns a list without the item at the specified position.
+     */
+    public PersistentList<T> removeAt(int position) {
+        checkPosition(position, size() - 1);
+        return of(concat(take(root, position), drop(root, position + 1)));
+    }
+
+    /**
+     * Returns the items from {@code fromPosition} inclusive to {@code toPosition}
+     * exclusive, as another {@link PersistentList}.
+     */
+    @Override
+    public PersistentList<T> subList(int fromPosition, int toPosition) {
+        checkPosition(toPosition, size());
+        checkPosition(fromPosition, toPosition);
+        if (fromPosition == 0 && toPosition == size()) {
+            return this;
+        }
+        return of(drop(take(root, toPosition), fromPosition));
+    }
+
+    /**
+     * Iterates over the items in order, in linear time.
+     */
+    @Override
+    public Iterator<T> iterator() {
+        return new Iterator<T>() {
+
+            /** The nodes of which the item and the right subtree are not visited yet. */
+            @SuppressWarnings("unchecked")
+            private final Node<T>[] stack = (Node<T>[]) new Node<?>[height(root)];
+            private int depth = 0;
+
+            {
+                pushLeftSpine(root);
+            }
+
+            private void pushLeftSpine(Node<T> node) {
+                for (; node != null; node = node.left) {
+                    stack[depth++] = node;
+                }
+            }
+
+            @Override
+            public boolean hasNext() {
+                return depth > 0;
+            }
+
+            @Override
+            public T next() {
+                if (depth == 0) {
+                    throw new NoSuchElementException();
+                }
+                Node<T> node = stack[--depth];
+                stack[depth] = null;
+                pushLeftSpine(node.right);
+                return node.item;
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    private void checkPosition(int position, int max) {
+        if (position < 0 || position > max) {
+            throw new IndexOutOfBoundsException("position " + position + ", size " + size());
+        }
+    }
+
+    private static int size(Node<?> node) {
+        return node == null ? 0 : node.size;
+    }
+
+    private static int height(Node<?> node) {
+        return node == null ? 0 : node.height;
+    }
+
+    /**
+     * Builds a perfectly balanced tree of the items of the specified range.
+     */
+    @SuppressWarnings("unchecked")
+    private static <T> Node<T> build(Object[] items, int from, int to) {
+        if (from == to) {
+            return null;
+        }
+        int middle = (from + to) >>> 1;
+        return new Node<T>(PersistentList.<T> build(items, from, middle), (T) items[middle],
+                PersistentList.<T> build(items, middle + 1, to));
+    }
+
+    private static <T> Node<T> replace(Node<T> node, int position, T item) {
+        int leftSize = size(node.left);
+        if (position < leftSize) {
+            return new Node<T>(replace(node.left, position, item), node.item, node.right);
+        } else if (position > leftSize) {
+            return new Node<T>(node.left, node.item, replace(node.right, position - leftSize
+                    - 1, item));
+        } else {
+            return new Node<T>(node.left, item, node.right);
+        }
+    }
+
+    /**
+     * Returns a tree of the first {@code count} items of the specified tree.
+     */
+    private static <T> Node<T> take(Node<T> node, int count) {
+        if (node == null || count == 0) {
+            return null;
+        }
+        if (count >= node.size) {
+            return node;
+        }
+        int leftSize = size(node.left);
+        if (count <= leftSize) {
+            return take(node.left, count);
+        }
+        return join(node.left, node.item, take(node.right, count - leftSize - 1));
+    }
+
+    /**
+     * Returns a tree of the items of the specified tree but the first {@code count}
+     * ones.
+     */
+    private static <T> Node<T> drop(Node<T> node, int count) {
+        if (node == null || count == 0) {
+            return node;
+        }
+        if (count >= node.size) {
+            return null;
+        }
+        int leftSize = size(node.left);
+        if (count > leftSize) {
+            return drop(node.right, count - leftSize - 1);
+        }
+        return join(drop(node.left, count), node.item, node.right);
+    }
+
+    /**
+     * Returns a tree of the items of {@code left} followed by the items of
+     * {@code right}.
+     */
+    private static <T> Node<T> concat(Node<T> left, Node<T> right) {
+        if (left == null) {
+            return right;
+        }
+        if (right == null) {
+            return left;
+        }
+        Node<T> first = right;
+        while (first.left != null) {
+            first = first.left;
+        }
+        return join(left, first.item, drop(right, 1));
+    }
+
+    /**
+     * Returns a balanced tree of the items of {@code left}, then {@code item}, then
+     * the items of {@code right}, in a time proportional to the difference of
+     * height of the two trees.
+     */
+    private static <T> Node<T> join(Node<T> left, T item, Node<T> right) {
+        int leftHeight = height(left);
+        int rightHeight = height(right);
+        if (leftHeight > rightHeight + 1) {
+            return balance(left.left, left.item, join(left.right, item, right));
+        } else if (rightHeight > leftHeight + 1) {
+            return balance(join(left, item, right.left), right.item, right.right);
+        } else {
+            return new Node<T>(left, item, right);
+        }
+    }
+
+    /**
+     * Returns a balanced tree of the specified subtrees and item, which differ in
+     * height by at most 2.
+     */
+    private static <T> Node<T> balance(Node<T> left, T item, Node<T> right) {
+        int leftHeight = height(left);
+        int rightHeight = height(right);
+        if (leftHeight > rightHeight + 1) {
+            if (height(left.left) >= height(left.right)) {
+                return new Node<T>(left.left, left.item, new Node<T>(left.right, item, right));
+            }
+            Node<T> middle = left.right;
+            return new Node<T>(new Node<T>(left.left, left.item, middle.left), middle.item,
+                    new Node<T>(middle.right, item, right));
+        } else if (rightHeight > leftHeight + 1) {
+            if (height(right.right) >= height(right.left)) {
+                return new Node<T>(new Node<T>(left, item, right.left), right.item, right.right);
+            }
+            Node<T> middle = right.left;
+            return new Node<T>(new Node<T>(left, item, middle.left), middle.item, new Node<T>(
+                    middle.right, right.item, right.right));
+        } else {
+            return new Node<T>(left, item, right);
+        }
+    }
+}
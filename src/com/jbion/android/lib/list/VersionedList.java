@@ -0,0 +1,75 @@
+package com.jbion.android.lib.list;
+
+import java.util.AbstractList;
+import java.util.Iterator;
+
+/**
+ * A read-only view of the last published version of a {@link PersistentList},
+ * meant to be the data of the adapter of a list whose items are loaded in the
+ * background.
+ * <p>
+ * The current version can be taken from any thread, as a snapshot that never
+ * changes, without copying the items. A loader derives a new version from it in
+ * the background, and the new version replaces the current one at once when it
+ * is published on the UI thread, after which the adapter must be notified. The
+ * adapter thus never reads a list being modified.
+ * </p>
+ * <p>
+ * Getting an item takes O(log n) time. The methods of {@link java.util.List} that
+ * modify the list throw an {@link UnsupportedOperationException}.
+ * </p>
+ * 
+ * @param <T>
+ *            The type of the items.
+ */
+public class VersionedList<T> extends AbstractList<T> {
+
+    private volatile PersistentList<T> version;
+
+    /**
+     * Creates a new empty {@link VersionedList}.
+     */
+    public VersionedList() {
+        this(PersistentList.<T> empty());
+    }
+
+    /**
+     * Creates a new {@link VersionedList} showing the specified version.
+     */
+    public VersionedList(PersistentList<T> version) {
+        this.version = version;
+    }
+
+    /**
+     * Returns the current version. May be called from any thread.
+     */
+    public PersistentList<T> getVersion() {
+        return version;
+    }
+
+    /**
+     * Replaces the current version by the specified one. Must be called from the UI
+     * thread, and followed by a notification of the adapter.
+     */
+    public void publish(PersistentList<T> newVersion) {
+        if (newVersion != version) {
+            modCount++;
+            version = newVersion;
+        }
+    }
+
+    @Override
+    public T get(int position) {
+        return version.get(position);
+    }
+
+    @Override
+    public int size() {
+        return version.size();
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return version.iterator();
+    }
+}
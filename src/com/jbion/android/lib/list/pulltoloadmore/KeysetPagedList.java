@@ -0,0 +1,315 @@
+package com.jbion.android.lib.list.pulltoloadmore;
+
+import java.util.AbstractList;
+import java.util.List;
+
+import android.os.AsyncTask;
+import android.util.Log;
+import android.view.View;
+
+import com.jbion.android.lib.list.ChunkedList;
+import com.jbion.android.lib.list.pulltoloadmore.PullToLoadListView.OnPullToLoadMoreListener;
+import com.jbion.android.lib.list.pulltorefresh.PullToRefreshListView.OnPullToRefreshListener;
+import com.jbion.android.lib.list.pulltorefresh.PullToRefreshListView.RefreshToken;
+
+/**
+ * The items of a {@link PullToLoadListView}, sorted from the newest to the oldest,
+ * loaded by pages at both ends using the keys of the items as cursors.
+ * <p>
+ * This list is meant to be the data of the adapter of the list, and to be set as
+ * both its {@link OnPullToRefreshListener} and its
+ * {@link OnPullToLoadMoreListener}: a refresh loads the items newer than the
+ * first one, and loading more loads the items older than the last one. Only one
+ * page is loaded at a time: a request made while a page is loading is run once
+ * the page is applied, with the cursor of that time, so that the results of the
+ * two ends never race. All the modifications happen on the UI thread.
+ * </p>
+ * <p>
+ * When the list exceeds its maximum size, the items at the opposite end are
+ * dropped, without moving the visible items. They are loaded again from the new
+ * cursor of that end when needed.
+ * </p>
+ * <p>
+ * All methods must be called from the UI thread. This list cannot be modified
+ * directly.
+ * </p>
+ * 
+ * @param <T>
+ *            The type of the items.
+ * @param <K>
+ *            The type of the keys of the items.
+ */
+public class KeysetPagedList<T, K> extends AbstractList<T> implements
+        OnPullToRefreshListener, OnPullToLoadMoreListener {
+
+    private static final String LOG_TAG = KeysetPagedList.class.getSimpleName();
+
+    /**
+     * Loads the pages of a {@link KeysetPagedList}. The pages are lists of items
+     * sorted from the newest to the oldest, like the items of the list.
+     * 
+     * @param <T>
+     *            The type of the items.
+     * @param <K>
+     *            The type of the keys of the items.
+     */
+    public static interface KeysetLoader<T, K> {
+
+        /**
+         * Returns the key of the specified item, which orders it in time. Called on
+         * the UI thread.
+         */
+        public K getKey(T item);
+
+        /**
+         * Loads the items that are just newer than the item of the specified key.
+         * Called on a background thread.
+         * 
+         * @param key
+         *            The key of the newest item of the list.
+         * @param count
+         *            The maximum number of items to load.
+         * @return The {@code count} oldest items newer than {@code key}, or less if
+         *         there are not as many. Must not be {@code null}.
+         * @throws Exception
+         *             If loading failed, which cancels the refresh.
+         */
+        public List<T> loadNewer(K key, int count) throws Exception;
+
+        /**
+         * Loads the items that are just older than the item of the specified key.
+         * Called on a background thread.
+         * 
+         * @param key
+         *            The key of the oldest item of the list, or {@code null} if the
+         *            list is empty, to load the newest items.
+         * @param count
+         *            The maximum number of items to load.
+         * @return The {@code count} newest items older than {@code key}, or less if
+         *         there are not as many, which means that the oldest item was
+         *         reached. Must not be {@code null}.
+         * @throws Exception
+         *             If loading failed.
+         */
+        public List<T> loadOlder(K key, int count) throws Exception;
+    }
+
+    private final PullToLoadListView list;
+    private final KeysetLoader<T, K> loader;
+    private final int pageSize;
+    private final int maxSize;
+
+    /** Prepending a page does not shift the other items. */
+    private final List<T> items = new ChunkedList<T>();
+
+    /** Whether the oldest item is in the list. */
+    private boolean oldestLoaded = false;
+    /** Whether a page is being loaded. */
+    private boolean loading = false;
+    /** The refresh requested while a page was loading, if any. */
+    private RefreshToken pendingRefresh;
+    /** Whether older items were requested while a page was loading. */
+    private boolean pendingLoadOlder = false;
+
+    /**
+     * Creates a new empty {@link KeysetPagedList}. The newest items are loaded on
+     * the first request, from either end.
+     * 
+     * @param list
+     *            The list displaying these items.
+     * @param loader
+     *            The loader of the pages.
+     * @param pageSize
+     *            The number of items to load at a time.
+     * @param maxSize
+     *            The maximum number of items of the list. Must be at least twice
+     *            the page size, so that a page can always be added without
+     *            dropping the other end entirely.
+     */
+    public KeysetPagedList(PullToLoadListView list, KeysetLoader<T, K> loader, int pageSize,
+            int maxSize) {
+        if (pageSize <= 0 || maxSize < 2 * pageSize) {
+            throw new IllegalArgumentException(
+                    "the page size must be positive, and the maximum size at least twice as big");
+        }
+        this.list = list;
+        this.loader = loader;
+        this.pageSize = pageSize;
+        this.maxSize = maxSize;
+    }
+
+    @Override
+    public T get(int position) {
+        return items.get(position);
+    }
+
+    @Override
+    public int size() {
+        return items.size();
+    }
+
+    /**
+     * Returns whether the oldest item is in the list, in which case loading more
+     * does nothing.
+     */
+    public boolean isOldestLoaded() {
+        return oldestLoaded;
+    }
+
+    /**
+     * Loads the items newer than the first one.
+     */
+    @Override
+    public void onPullToRefresh(RefreshToken token) {
+        if (loading) {
+            if (pendingRefresh != null) {
+                // replaced by this one
+                pendingRefresh.cancel();
+            }
+            pendingRefresh = token;
+        } else {
+            load(true, token);
+        }
+    }
+
+    /**
+     * Loads the items older than the last one, unless the oldest item is already in
+     * the list.
+     */
+    @Override
+    public void onPullToLoadMore() {
+        if (oldestLoaded) {
+            list.onLoadingComplete();
+        } else if (loading) {
+            pendingLoadOlder = true;
+        } else {
+            load(false, null);
+        }
+    }
+
+    private void load(boolean newer, RefreshToken token) {
+        loading = true;
+        K key = null;
+        if (!items.isEmpty()) {
+            key = loader.getKey(items.get(newer ? 0 : items.size() - 1));
+        }
+        new LoadPageTask(newer && key != null, key, token).execute();
+    }
+
+    /**
+     * Runs the request made while the last page was loading, if any. Refreshes go
+     * first.
+     */
+    private void runPendingRequest() {
+        if (pendingRefresh != null) {
+            RefreshToken token = pendingRefresh;
+            pendingRefresh = null;
+            if (!token.isCanceled()) {
+                load(true, token);
+                return;
+            }
+        }
+        if (pendingLoadOlder) {
+            pendingLoadOlder = false;
+            onPullToLoadMore();
+        }
+    }
+
+    private void prependNewer(List<T> page) {
+        items.addAll(0, page);
+        list.notifyItemRangeInserted(0, page.size());
+        // drop the oldest items
+        int excess = items.size() - maxSize;
+        if (excess > 0) {
+            int start = items.size() - excess;
+            items.subList(start, items.size()).clear();
+            list.notifyItemRangeRemoved(start, excess);
+            oldestLoaded = false;
+        }
+    }
+
+    private void appendOlder(List<T> page) {
+        int start = items.size();
+        items.addAll(page);
+        oldestLoaded = page.size() < pageSize;
+        list.notifyItemRangeInserted(start, page.size());
+        // drop the newest items, but not the visible ones
+        int firstVisible = list.getFirstVisiblePosition() - list.getHeaderViewsCount();
+        int excess = Math.min(items.size() - maxSize, firstVisible);
+        if (excess > 0) {
+            View firstChild = list.getChildAt(0);
+            int top = firstChild == null ? 0 : firstChild.getTop();
+            items.subList(0, excess).clear();
+            list.notifyItemRangeRemoved(0, excess);
+            list.setSelectionFromTop(list.getFirstVisiblePosition() - excess, top);
+        }
+    }
+
+    private class LoadPageTask extends AsyncTask<Void, Void, List<T>> {
+
+        private final boolean newer;
+        private final K key;
+        private final RefreshToken token;
+        private Exception error;
+
+        /**
+         * @param newer
+         *            {@code true} to load the items newer than the key, {@code false}
+         *            to load the items older than the key.
+         * @param key
+         *            The cursor.
+         * @param token
+         *            The token of the refresh, if this loads newer items or fills
+         *            an empty list on refresh.
+         */
+        public LoadPageTask(boolean newer, K key, RefreshToken token) {
+            this.newer = newer;
+            this.key = key;
+            this.token = token;
+        }
+
+        @Override
+        protected List<T> doInBackground(Void... params) {
+            if (token != null && token.isCanceled()) {
+                return null;
+            }
+            try {
+                return newer ? loader.loadNewer(key, pageSize) : loader.loadOlder(key,
+                        pageSize);
+            } catch (Exception e) {
+                error = e;
+                return null;
+            }
+        }
+
+        @Override
+        protected void onPostExecute(List<T> page) {
+            loading = false;
+            if (token != null && token.isCanceled()) {
+                // the results are dropped
+            } else if (error != null) {
+                Log.e(LOG_TAG, "Failed to load the items " + (newer ? "newer" : "older")
+                        + " than " + key, error);
+                finish();
+            } else {
+                if (newer) {
+                    prependNewer(page);
+                } else {
+                    appendOlder(page);
+                }
+                finish();
+            }
+            runPendingRequest();
+        }
+
+        private void finish() {
+            if (token == null) {
+                list.onLoadingComplete();
+            } else if (error != null) {
+                token.cancel();
+            } else {
+                token.complete();
+            }
+        }
+    }
+}
@@ -0,0 +1,343 @@
+package com.jbion.android.lib.list.pulltoloadmore;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Map;
+import java.util.Set;
+
+import android.os.AsyncTask;
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.jbion.android.lib.list.pulltoloadmore.PullToLoadListView.OnPullToLoadMoreListener;
+
+/**
+ * The items of a {@link PullToLoadListView}, loaded by pages, of which only a
+ * bounded number are kept in memory.
+ * <p>
+ * This list is meant to be the data of the adapter of the list, and to be set as
+ * its {@link OnPullToLoadMoreListener}: each time the end of the list is
+ * reached, the next page is loaded in the background and appended. When more than
+ * the maximum number of pages are in memory, the least recently used page is
+ * evicted, unless it is visible. The items of an evicted page are replaced by a
+ * placeholder until the page is read again, which reloads it in the background.
+ * Evicting and reloading pages changes neither the size of this list nor the
+ * positions of the items, so the scroll position of the list is kept.
+ * </p>
+ * <p>
+ * Only {@link #get(int)}, which the adapter calls to bind the items, reloads the
+ * evicted pages. The other reads, such as iterating, searching, comparing or
+ * copying this list, see the placeholders and load nothing. A page that failed
+ * to load is not requested again by {@link #get(int)} before
+ * {@link #RETRY_DELAY} milliseconds, or before the next load-more.
+ * </p>
+ * <p>
+ * All methods must be called from the UI thread. This list cannot be modified
+ * directly.
+ * </p>
+ * 
+ * @param <T>
+ *            The type of the items.
+ */
+public class PagedList<T> extends AbstractList<T> implements OnPullToLoadMoreListener {
+
+    private static final String LOG_TAG = PagedList.class.getSimpleName();
+
+    /** The minimum time between two attempts to reload a page, in milliseconds. */
+    public static final long RETRY_DELAY = 5000;
+
+    /**
+     * Loads the pages of a {@link PagedList}.
+     * 
+     * @param <T>
+     *            The type of the items.
+     */
+    public static interface PageLoader<T> {
+
+        /**
+         * Loads the specified page. Called on a background thread.
+         * 
+         * @param page
+         *            The index of the page to load, starting at 0.
+         * @param pageSize
+         *            The number of items of a page.
+         * @return The items of the page. A page of less than {@code pageSize} items
+         *         is the last page. Must not be {@code null}.
+         * @throws Exception
+         *             If loading failed. A page that failed to load is requested
+         *             again when it is needed, after {@link PagedList#RETRY_DELAY}
+         *             or on the next load-more.
+         */
+        public List<T> loadPage(int page, int pageSize) throws Exception;
+    }
+
+    private final PullToLoadListView list;
+    private final PageLoader<T> loader;
+    private final int pageSize;
+    private final int maxPages;
+    private final T placeholder;
+
+    /**
+     * The pages in memory, by index, from the least to the most recently used. The
+     * order is kept by hand, so that peeking at a page does not count as a use.
+     */
+    private final LinkedHashMap<Integer, List<T>> pages;
+    /** The indices of the pages being loaded. */
+    private final Set<Integer> loadingPages = new HashSet<Integer>();
+    /** The uptime of the last failure to load each page, for the pages that failed. */
+    private final Map<Integer, Long> failedPages = new HashMap<Integer, Long>();
+    /** The items as they are, read without loading the evicted pages. */
+    private final List<T> loadedView = new AbstractList<T>() {
+        @Override
+        public T get(int position) {
+            return peek(position);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    };
+    /** The number of items of all the pages loaded so far, in memory or not. */
+    private int size = 0;
+    /** Whether the last page was loaded. */
+    private boolean complete = false;
+
+    /**
+     * Creates a new empty {@link PagedList}. Its first page is loaded when the list
+     * requests more items.
+     * 
+     * @param list
+     *            The list displaying these items.
+     * @param loader
+     *            The loader of the pages.
+     * @param pageSize
+     *            The number of items of a page.
+     * @param maxPages
+     *            The maximum number of pages kept in memory, in addition to the
+     *            visible ones.
+     * @param placeholder
+     *            The item to show in place of the items of a page that is not in
+     *            memory, which should be cheap to display.
+     */
+    public PagedList(PullToLoadListView list, PageLoader<T> loader, int pageSize,
+            int maxPages, T placeholder) {
+        if (pageSize <= 0 || maxPages <= 0) {
+            throw new IllegalArgumentException(
+                    "the page size and the maximum number of pages must be positive");
+        }
+        this.list = list;
+        this.loader = loader;
+        this.pageSize = pageSize;
+        this.maxPages = maxPages;
+        this.placeholder = placeholder;
+        this.pages = new LinkedHashMap<Integer, List<T>>(2 * maxPages);
+    }
+
+    /**
+     * Returns the item at the specified position, or the placeholder if its page is
+     * not in memory, in which case the page is reloaded.
+     */
+    @Override
+    public T get(int position) {
+        if (position < 0 || position >= size) {
+            throw new IndexOutOfBoundsException("position " + position + ", size " + size);
+        }
+        int page = position / pageSize;
+        List<T> items = pages.remove(page);
+        if (items == null) {
+            Long failure = failedPages.get(page);
+            if (failure == null || SystemClock.uptimeMillis() - failure >= RETRY_DELAY) {
+                loadPage(page);
+            }
+            return placeholder;
+        }
+        // most recently used
+        pages.put(page, items);
+        return items.get(position - page * pageSize);
+    }
+
+    /**
+     * Returns the item at the specified position, or the placeholder if its page is
+     * not in memory. Unlike {@link #get(int)}, this does not reload the page, nor
+     * change the order of eviction of the pages.
+     */
+    public T peek(int position) {
+        if (position < 0 || position >= size) {
+            throw new IndexOutOfBoundsException("position " + position + ", size " + size);
+        }
+        int page = position / pageSize;
+        List<T> items = pages.get(page);
+        if (items == null) {
+            return placeholder;
+        }
+        return items.get(position - page * pageSize);
+    }
+
+    /**
+     * Iterates over the items without loading the evicted pages, which are seen as
+     * placeholders.
+     */
+    @Override
+    public Iterator<T> iterator() {
+        return loadedView.iterator();
+    }
+
+    /**
+     * Iterates over the items without loading the evicted pages, which are seen as
+     * placeholders.
+     */
+    @Override
+    public ListIterator<T> listIterator(int position) {
+        return loadedView.listIterator(position);
+    }
+
+    /**
+     * Searches the items in memory only, without loading the evicted pages.
+     */
+    @Override
+    public int indexOf(Object item) {
+        return loadedView.indexOf(item);
+    }
+
+    /**
+     * Searches the items in memory only, without loading the evicted pages.
+     */
+    @Override
+    public int lastIndexOf(Object item) {
+        return loadedView.lastIndexOf(item);
+    }
+
+    /**
+     * Returns a view of the specified range that does not load the evicted pages.
+     */
+    @Override
+    public List<T> subList(int fromPosition, int toPosition) {
+        return loadedView.subList(fromPosition, toPosition);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns whether the item at the specified position is in memory, as opposed
+     * to being shown as a placeholder.
+     */
+    public boolean isLoaded(int position) {
+        return pages.containsKey(position / pageSize);
+    }
+
+    /**
+     * Returns whether the last page was loaded.
+     */
+    public boolean isComplete() {
+        return complete;
+    }
+
+    /**
+     * Loads the next page, unless the last page was already loaded. The pages that
+     * failed to load may be requested again right away.
+     */
+    @Override
+    public void onPullToLoadMore() {
+        failedPages.clear();
+        if (complete) {
+            list.onLoadingComplete();
+            return;
+        }
+        loadPage(size / pageSize);
+    }
+
+    private void loadPage(int page) {
+        if (loadingPages.add(page)) {
+            new LoadPageTask(page).execute();
+        }
+    }
+
+    private void onPageLoaded(int page, List<T> items) {
+        int start = page * pageSize;
+        if (start == size) {
+            pages.put(page, new ArrayList<T>(items));
+            size += items.size();
+            complete = items.size() < pageSize;
+            list.notifyItemRangeInserted(start, items.size());
+            list.onLoadingComplete();
+        } else {
+            // a reloaded page keeps its size, so that no item moves
+            int count = Math.min(pageSize, size - start);
+            List<T> kept = new ArrayList<T>(count);
+            kept.addAll(items.subList(0, Math.min(count, items.size())));
+            while (kept.size() < count) {
+                kept.add(placeholder);
+            }
+            pages.put(page, kept);
+            list.notifyItemRangeChanged(start, count);
+        }
+        evictPages();
+    }
+
+    /**
+     * Evicts the least recently used pages until at most {@code maxPages} pages that
+     * are not visible are in memory.
+     */
+    private void evictPages() {
+        int excess = pages.size() - maxPages;
+        if (excess <= 0) {
+            return;
+        }
+        int headers = list.getHeaderViewsCount();
+        int firstVisiblePage = Math.max(0, list.getFirstVisiblePosition() - headers) / pageSize;
+        int lastVisiblePage = Math.max(0, list.getLastVisiblePosition() - headers) / pageSize;
+        Iterator<Map.Entry<Integer, List<T>>> it = pages.entrySet().iterator();
+        while (excess > 0 && it.hasNext()) {
+            int page = it.next().getKey();
+            if (page < firstVisiblePage || page > lastVisiblePage) {
+                it.remove();
+                excess--;
+            }
+        }
+    }
+
+    private class LoadPageTask extends AsyncTask<Void, Void, List<T>> {
+
+        private final int page;
+        private Exception error;
+
+        public LoadPageTask(int page) {
+            this.page = page;
+        }
+
+        @Override
+        protected List<T> doInBackground(Void... params) {
+            try {
+                return loader.loadPage(page, pageSize);
+            } catch (Exception e) {
+                error = e;
+                return null;
+            }
+        }
+
+        @Override
+        protected void onPostExecute(List<T> items) {
+            loadingPages.remove(page);
+            if (error != null) {
+                Log.e(LOG_TAG, "Failed to load page " + page, error);
+                failedPages.put(page, SystemClock.uptimeMillis());
+                if (page * pageSize == size) {
+                    list.onLoadingComplete();
+                }
+                return;
+            }
+            failedPages.remove(page);
+            onPageLoaded(page, items);
+        }
+    }
+}
@@ -1,13 +1,18 @@
 package com.jbion.android.lib.list.pulltoloadmore;
 
 import android.content.Context;
+import android.os.SystemClock;
 import android.util.AttributeSet;
 import android.util.Log;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.widget.AbsListView;
 import android.widget.AbsListView.OnScrollListener;
+import android.widget.BaseAdapter;
+import android.widget.ListAdapter;
 
+import com.jbion.android.lib.list.ListDiff;
+import com.jbion.android.lib.list.ListDiff.Op;
 import com.jbion.android.lib.list.pulltorefresh.PullToRefreshListView;
 import com.jbion.android.pulltorefresh.R;
 
@@ -15,6 +20,11 @@ public class PullToLoadListView extends PullToRefreshListView implements OnScrol
 
     private static final String LOG_TAG = PullToLoadListView.class.getSimpleName();
 
+    /** Minimum time between two samples of the scroll velocity, in milliseconds. */
+    private static final int VELOCITY_SAMPLE_INTERVAL = 50;
+    /** Weight of a new sample in the smoothed scroll velocity. */
+    private static final float VELOCITY_SMOOTHING = 0.5f;
+
     /**
      * Interface definition for a callback to be invoked when this list reaches the
      * last item.
@@ -48,6 +58,16 @@ public class PullToLoadListView extends PullToRefreshListView implements OnScrol
     /** Whether the list is loading more items */
     private boolean mIsLoadingMore = false;
 
+    /** Number of items from the end at which loading starts, when not scrolling. */
+    private int prefetchDistance = 0;
+    /** Expected time to load more items, in milliseconds. */
+    private long prefetchLatency = 0;
+
+    /** Smoothed scroll velocity towards the end of the list, in items per ms. */
+    private float scrollVelocity = 0;
+    private int lastSamplePosition = -1;
+    private long lastSampleTime;
+
     private View footerContainer;
     private View progressBar;
 
@@ -113,6 +133,215 @@ public class PullToLoadListView extends PullToRefreshListView implements OnScrol
         loadMoreEnabled = enabled;
     }
 
+    /**
+     * Sets how many items before the end of the list loading starts, so that the
+     * new items may arrive before the user reaches the end. For instance, use the
+     * size of a page to request the next page as soon as the last page is shown.
+     * Default is 0: loading starts when the last item is visible.
+     * 
+     * @param items
+     *            The number of items between the last visible item and the end of
+     *            the list at which loading starts.
+     */
+    public void setPrefetchDistance(int items) {
+        this.prefetchDistance = Math.max(0, items);
+    }
+
+    /**
+     * Sets the expected time to load more items. While the user scrolls towards
+     * the end, the prefetch distance is extended by the number of items the user
+     * is expected to scroll through during that time, at the current velocity, so
+     * that fast flings do not reach the end before the items arrive. Default is 0:
+     * the velocity is ignored.
+     * 
+     * @param millis
+     *            The expected loading time, in milliseconds.
+     * @see #setPrefetchDistance(int)
+     */
+    public void setPrefetchLatency(long millis) {
+        this.prefetchLatency = Math.max(0, millis);
+    }
+
+    /*
+     * INCREMENTAL DATA CHANGES
+     */
+
+    /**
+     * Notifies this list that {@code count} items were inserted in the adapter at
+     * {@code positionStart}. The adapter's data must already contain the new items.
+     * <p>
+     * Unlike a plain {@link BaseAdapter#notifyDataSetChanged()}, this keeps the
+     * internal per-item state of this list (and its subclasses) in sync by shifting
+     * it, instead of rebuilding it. If the adapter is a {@link BaseAdapter}, it is
+     * notified by this method so that the list updates its item count. Otherwise,
+     * the using class must still notify its adapter itself.
+     * </p>
+     * 
+     * @param positionStart
+     *            The adapter position of the first inserted item (headers are not
+     *            taken into account).
+     * @param count
+     *            The number of inserted items.
+     */
+    public void notifyItemRangeInserted(int positionStart, int count) {
+        if (count <= 0) {
+            return;
+        }
+        onItemRangeInserted(positionStart + getHeaderViewsCount(), count);
+        notifyUserAdapter();
+    }
+
+    /**
+     * Notifies this list that {@code count} items were removed from the adapter,
+     * starting at {@code positionStart}. The adapter's data must already be
+     * modified.
+     * <p>
+     * See {@link #notifyItemRangeInserted(int, int)} for details about the adapter
+     * notification.
+     * </p>
+     * 
+     * @param positionStart
+     *            The former adapter position of the first removed item (headers are
+     *            not taken into account).
+     * @param count
+     *            The number of removed items.
+     */
+    public void notifyItemRangeRemoved(int positionStart, int count) {
+        if (count <= 0) {
+            return;
+        }
+        onItemRangeRemoved(positionStart + getHeaderViewsCount(), count);
+        notifyUserAdapter();
+    }
+
+    /**
+     * Notifies this list that an item was moved in the adapter. The adapter's data
+     * must already be modified.
+     * <p>
+     * See {@link #notifyItemRangeInserted(int, int)} for details about the adapter
+     * notification.
+     * </p>
+     * 
+     * @param fromPosition
+     *            The former adapter position of the item (headers are not taken into
+     *            account).
+     * @param toPosition
+     *            The new adapter position of the item.
+     */
+    public void notifyItemMoved(int fromPosition, int toPosition) {
+        if (fromPosition == toPosition) {
+            return;
+        }
+        onItemMoved(fromPosition + getHeaderViewsCount(), toPosition + getHeaderViewsCount());
+        notifyUserAdapter();
+    }
+
+    /**
+     * Notifies this list that the data of {@code count} items changed, starting at
+     * {@code positionStart}. The number of items must not have changed.
+     * <p>
+     * Only the visible views of the changed items are rebound, without a layout
+     * pass, as long as the adapter reuses the given convert view.
+     * </p>
+     * 
+     * @param positionStart
+     *            The adapter position of the first changed item (headers are not
+     *            taken into account).
+     * @param count
+     *            The number of changed items.
+     */
+    public void notifyItemRangeChanged(int positionStart, int count) {
+        ListAdapter adapter = getAdapter();
+        if (count <= 0 || adapter == null) {
+            return;
+        }
+        int first = getFirstVisiblePosition();
+        int start = Math.max(positionStart + getHeaderViewsCount(), first);
+        int end = Math.min(positionStart + getHeaderViewsCount() + count,
+                first + getChildCount());
+        for (int position = start; position < end; position++) {
+            View child = getChildAt(position - first);
+            if (adapter.getView(position, child, this) != child) {
+                // the adapter did not reuse the view, it has to be laid out
+                Log.d(LOG_TAG, "Item " + position + " needs a new view, rebinding all");
+                notifyUserAdapter();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Notifies this list of all the operations of the diff, keeping the per-item
+     * state of this list in sync. The adapter is notified at most once, and not at
+     * all if the diff only changes items: in that case, only the visible changed
+     * items are rebound, as in {@link #notifyItemRangeChanged(int, int)}.
+     */
+    @Override
+    public void dispatchDiff(ListDiff diff) {
+        if (diff.isEmpty()) {
+            return;
+        }
+        if (!diff.hasStructuralChanges()) {
+            for (Op op : diff.getOps()) {
+                notifyItemRangeChanged(op.getPosition(), op.getCount());
+            }
+            return;
+        }
+        int headers = getHeaderViewsCount();
+        for (Op op : diff.getOps()) {
+            switch (op.getType()) {
+            case INSERT:
+                onItemRangeInserted(op.getPosition() + headers, op.getCount());
+                break;
+            case REMOVE:
+                onItemRangeRemoved(op.getPosition() + headers, op.getCount());
+                break;
+            case MOVE:
+                onItemMoved(op.getPosition() + headers, op.getToPosition() + headers);
+                break;
+            case CHANGE:
+                // rebound by the layout
+                break;
+            }
+        }
+        notifyUserAdapter();
+    }
+
+    /**
+     * Called when items were inserted via
+     * {@link #notifyItemRangeInserted(int, int)} or {@link #dispatchDiff(ListDiff)},
+     * before the adapter is notified.
+     * 
+     * @param position
+     *            The list position of the first inserted item (headers included).
+     * @param count
+     *            The number of inserted items.
+     */
+    protected void onItemRangeInserted(int position, int count) {}
+
+    /**
+     * Called when items were removed via {@link #notifyItemRangeRemoved(int, int)}
+     * or {@link #dispatchDiff(ListDiff)}, before the adapter is notified.
+     * 
+     * @param position
+     *            The former list position of the first removed item (headers
+     *            included).
+     * @param count
+     *            The number of removed items.
+     */
+    protected void onItemRangeRemoved(int position, int count) {}
+
+    /**
+     * Called when an item was moved via {@link #notifyItemMoved(int, int)} or
+     * {@link #dispatchDiff(ListDiff)}, before the adapter is notified.
+     * 
+     * @param fromPosition
+     *            The former list position of the item (headers included).
+     * @param toPosition
+     *            The new list position of the item (headers included).
+     */
+    protected void onItemMoved(int fromPosition, int toPosition) {}
+
     /*
      * We keep the using class's listener in this class and use this class as super
      * listener.
@@ -128,6 +357,10 @@ public class PullToLoadListView extends PullToRefreshListView implements OnScrol
 
     @Override
     public void onScrollStateChanged(AbsListView view, int scrollState) {
+        if (scrollState == SCROLL_STATE_IDLE) {
+            scrollVelocity = 0;
+            lastSamplePosition = -1;
+        }
         // pass on the event
         if (userScrollListener != null) {
             userScrollListener.onScrollStateChanged(view, scrollState);
@@ -146,10 +379,11 @@ public class PullToLoadListView extends PullToRefreshListView implements OnScrol
                 Log.d(LOG_TAG, "all items on the screen, nothing should have to be loaded");
                 progressBar.setVisibility(View.GONE);
             } else {
-                boolean endOfListReached = firstVisibleItem + visibleItemCount >= totalItemCount;
-                if (!mIsLoadingMore && endOfListReached) {
+                int remaining = totalItemCount - (firstVisibleItem + visibleItemCount);
+                int distance = getPrefetchDistance(firstVisibleItem);
+                if (!mIsLoadingMore && remaining <= distance) {
                     // start loading
-                    Log.d(LOG_TAG, "End of list reached, starting loading");
+                    Log.d(LOG_TAG, remaining + " items before the end, starting loading");
                     progressBar.setVisibility(View.VISIBLE);
                     mIsLoadingMore = true;
                     if (onLoadMoreListener != null) {
@@ -163,4 +397,30 @@ public class PullToLoadListView extends PullToRefreshListView implements OnScrol
             userScrollListener.onScroll(view, firstVisibleItem, visibleItemCount, totalItemCount);
         }
     }
+
+    /**
+     * Samples the scroll velocity, and returns the current number of items before
+     * the end at which loading starts.
+     * 
+     * @param firstVisibleItem
+     *            The position of the first visible item.
+     */
+    private int getPrefetchDistance(int firstVisibleItem) {
+        if (prefetchLatency == 0) {
+            return prefetchDistance;
+        }
+        long now = SystemClock.uptimeMillis();
+        if (lastSamplePosition < 0) {
+            lastSamplePosition = firstVisibleItem;
+            lastSampleTime = now;
+        } else if (now - lastSampleTime >= VELOCITY_SAMPLE_INTERVAL) {
+            // only scrolling towards the end matters
+            float sample = Math.max(0, firstVisibleItem - lastSamplePosition)
+                    / (float) (now - lastSampleTime);
+            scrollVelocity += VELOCITY_SMOOTHING * (sample - scrollVelocity);
+            lastSamplePosition = firstVisibleItem;
+            lastSampleTime = now;
+        }
+        return prefetchDistance + (int) Math.ceil(scrollVelocity * prefetchLatency);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,211 @@
+package com.jbion.android.lib.list.pulltorefresh;
+
+import java.text.DateFormat;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+
+/**
+ * The "last updated" label of a {@link PullToRefreshListView}.
+ * <p>
+ * The label is relative while the last update is recent ("just now",
+ * "5 min ago", "2 h ago"), and shows the absolute date after a day. It is
+ * formatted only when the time of the last update changes or when the elapsed
+ * time reaches another bucket, so that showing the header again and again does
+ * not format the same date each time.
+ * </p>
+ * <p>
+ * All the texts can be replaced, to localize the label.
+ * </p>
+ */
+class LastUpdatedLabel {
+
+    private static final long MINUTE = 60 * 1000;
+    private static final long HOUR = 60 * MINUTE;
+    private static final long DAY = 24 * HOUR;
+
+    /** Bucket of the labels showing the absolute date. */
+    private static final long ABSOLUTE_BUCKET = Long.MAX_VALUE;
+    /** Bucket of a label that has not been formatted yet. */
+    private static final long NO_BUCKET = -1;
+
+    private static final String DEFAULT_TEMPLATE = "Updated: %1$s";
+    private static final String DEFAULT_JUST_NOW_TEXT = "just now";
+    private static final String DEFAULT_MINUTES_AGO_TEXT = "%1$d min ago";
+    private static final String DEFAULT_HOURS_AGO_TEXT = "%1$d h ago";
+
+    private String template = DEFAULT_TEMPLATE;
+    private String justNowText = DEFAULT_JUST_NOW_TEXT;
+    private String minutesAgoText = DEFAULT_MINUTES_AGO_TEXT;
+    private String hoursAgoText = DEFAULT_HOURS_AGO_TEXT;
+    private DateFormat dateFormat = DateFormat.getDateTimeInstance();
+
+    private long updateTime = -1;
+    private long cachedBucket = NO_BUCKET;
+    private String cachedLabel;
+
+    /**
+     * Returns whether the time of the last update is known.
+     */
+    public boolean hasUpdateTime() {
+        return updateTime != -1;
+    }
+
+    /**
+     * Returns the time of the last update, in milliseconds since the epoch, or -1
+     * if there was none.
+     */
+    public long getUpdateTime() {
+        return updateTime;
+    }
+
+    /**
+     * Sets the time of the last update.
+     * 
+     * @param time
+     *            The time of the last update, in milliseconds since the epoch, or
+     *            -1 if there was none.
+     */
+    public void setUpdateTime(long time) {
+        if (time != updateTime) {
+            updateTime = time;
+            invalidate();
+        }
+    }
+
+    /**
+     * Sets the format of the absolute date, used once the last update is more than
+     * a day old.
+     */
+    public void setDateFormat(DateFormat dateFormat) {
+        this.dateFormat = dateFormat;
+        invalidate();
+    }
+
+    /**
+     * Sets the template of the label.
+     * 
+     * @param template
+     *            A format string, where {@code %1$s} is replaced by the relative
+     *            time or the absolute date.
+     */
+    public void setTemplate(String template) {
+        this.template = template;
+        invalidate();
+    }
+
+    /**
+     * Sets the texts of the relative times.
+     * 
+     * @param justNowText
+     *            The text used during the first minute.
+     * @param minutesAgoText
+     *            A format string used during the first hour, where {@code %1$d} is
+     *            replaced by the number of minutes.
+     * @param hoursAgoText
+     *            A format string used during the first day, where {@code %1$d} is
+     *            replaced by the number of hours.
+     */
+    public void setRelativeTexts(String justNowText, String minutesAgoText, String hoursAgoText) {
+        this.justNowText = justNowText;
+        this.minutesAgoText = minutesAgoText;
+        this.hoursAgoText = hoursAgoText;
+        invalidate();
+    }
+
+    /**
+     * Returns the label for the specified current time, formatting it only if the
+     * cached one is outdated.
+     * 
+     * @param now
+     *            The current time, in milliseconds since the epoch.
+     * @return The label, or {@code null} if the time of the last update is not
+     *         known.
+     */
+    public String get(long now) {
+        if (!hasUpdateTime()) {
+            return null;
+        }
+        long bucket = getBucket(now - updateTime);
+        if (bucket != cachedBucket) {
+            cachedLabel = String.format(template, format(bucket));
+            cachedBucket = bucket;
+        }
+        return cachedLabel;
+    }
+
+    /**
+     * Returns the bucket of the cached label, to be saved with the label itself.
+     */
+    public long getCachedBucket() {
+        return cachedBucket;
+    }
+
+    /**
+     * Returns the cached label, as last returned by {@link #get(long)}.
+     */
+    public String getCachedLabel() {
+        return cachedLabel;
+    }
+
+    /**
+     * Returns a key identifying the texts and the locale used to format the label,
+     * to be saved with the label itself.
+     */
+    public String getTextsKey() {
+        String pattern = dateFormat instanceof SimpleDateFormat ? ((SimpleDateFormat) dateFormat)
+                .toPattern() : dateFormat.getClass().getName();
+        return Locale.getDefault() + "\n" + template + "\n" + justNowText + "\n"
+                + minutesAgoText + "\n" + hoursAgoText + "\n" + pattern;
+    }
+
+    /**
+     * Restores a label saved with {@link #getUpdateTime()},
+     * {@link #getCachedBucket()}, {@link #getCachedLabel()} and
+     * {@link #getTextsKey()}, so that it is not formatted again while it is still
+     * up to date. The label is dropped if it was formatted with other texts.
+     */
+    public void restore(long time, long bucket, String label, String textsKey) {
+        updateTime = time;
+        if (label == null || !getTextsKey().equals(textsKey)) {
+            invalidate();
+        } else {
+            cachedBucket = bucket;
+            cachedLabel = label;
+        }
+    }
+
+    private void invalidate() {
+        cachedBucket = NO_BUCKET;
+        cachedLabel = null;
+    }
+
+    /**
+     * Returns the bucket of the specified elapsed time. Two elapsed times in the
+     * same bucket get the same label.
+     */
+    private static long getBucket(long elapsed) {
+        if (elapsed < MINUTE) {
+            // includes negative times, when the clock was set back
+            return 0;
+        } else if (elapsed < HOUR) {
+            return elapsed / MINUTE;
+        } else if (elapsed < DAY) {
+            return HOUR / MINUTE + elapsed / HOUR;
+        } else {
+            return ABSOLUTE_BUCKET;
+        }
+    }
+
+    private String format(long bucket) {
+        if (bucket == 0) {
+            return justNowText;
+        } else if (bucket < HOUR / MINUTE) {
+            return String.format(minutesAgoText, bucket);
+        } else if (bucket != ABSOLUTE_BUCKET) {
+            return String.format(hoursAgoText, bucket - HOUR / MINUTE);
+        } else {
+            return dateFormat.format(new Date(updateTime));
+        }
+    }
+}
@@ -0,0 +1,300 @@
+package com.jbion.android.lib.list.pulltorefresh;
+
+import android.content.Context;
+import android.content.res.TypedArray;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Path;
+import android.graphics.RectF;
+import android.graphics.Typeface;
+import android.util.DisplayMetrics;
+import android.view.View;
+
+/**
+ * The header of a {@link PullToRefreshListView}. It draws its arrow, spinner and
+ * labels itself, so that no view hierarchy has to be inflated, measured or laid
+ * out for it.
+ * <p>
+ * The header is hidden with a negative top margin, handled by the view itself:
+ * its height is the height of its content plus the margin, and the top of the
+ * content is cut off. Changing the labels or the rotation of the arrow and the
+ * spinner only invalidates this view, which is laid out again only when the
+ * margin changes or when the "last updated" label is shown or hidden.
+ * </p>
+ */
+class PullToRefreshHeader extends View {
+
+    private static final int PADDING_DP = 5;
+    private static final int ICON_MARGIN_LEFT_DP = 25;
+    private static final int ARROW_WIDTH_DP = 14;
+    private static final int ARROW_HEIGHT_DP = 24;
+    private static final int SPINNER_SIZE_DP = 16;
+    private static final int SPINNER_STROKE_DP = 2;
+    private static final float SPINNER_SWEEP_ANGLE = 270;
+    private static final int TEXT_SIZE_SP = 18;
+    private static final int LAST_UPDATED_TEXT_SIZE_SP = 14;
+
+    /**
+     * A single line of text, measured only when it changes.
+     */
+    private static class Label {
+
+        private final Paint paint;
+        /** Offset of the baseline from the center of the line. */
+        private final float baselineOffset;
+        private String text = "";
+        private float width;
+
+        public Label(Paint paint) {
+            this.paint = paint;
+            this.baselineOffset = -(paint.ascent() + paint.descent()) / 2;
+        }
+
+        /**
+         * Sets the text of this label.
+         * 
+         * @return {@code true} if the text changed.
+         */
+        public boolean setText(String text) {
+            if (text == null) {
+                text = "";
+            }
+            if (this.text.equals(text)) {
+                return false;
+            }
+            this.text = text;
+            width = paint.measureText(text);
+            return true;
+        }
+
+        public void draw(Canvas canvas, float centerX, float centerY) {
+            canvas.drawText(text, centerX - width / 2, centerY + baselineOffset, paint);
+        }
+    }
+
+    private final Paint iconPaint;
+    private final Paint spinnerPaint;
+    private final Path arrowPath = new Path();
+    private final RectF spinnerBounds;
+
+    private final Label label;
+    private final Label lastUpdatedLabel;
+
+    private final int padding;
+    private final int iconLeft;
+    private final int arrowWidth;
+    private final int arrowHeight;
+    private final int spinnerSize;
+    private final int rowHeight;
+    private final int lastUpdatedHeight;
+
+    private int topMargin;
+    private boolean spinnerShown;
+    private boolean lastUpdatedShown;
+    private float arrowRotation;
+    private float spinnerRotation;
+
+    /**
+     * @see View#View(Context)
+     */
+    public PullToRefreshHeader(Context context) {
+        super(context);
+        DisplayMetrics metrics = getResources().getDisplayMetrics();
+        padding = Math.round(PADDING_DP * metrics.density);
+        iconLeft = padding + Math.round(ICON_MARGIN_LEFT_DP * metrics.density);
+        arrowWidth = Math.round(ARROW_WIDTH_DP * metrics.density);
+        arrowHeight = Math.round(ARROW_HEIGHT_DP * metrics.density);
+        spinnerSize = Math.round(SPINNER_SIZE_DP * metrics.density);
+
+        TypedArray a = context.obtainStyledAttributes(new int[] {
+                android.R.attr.textColorPrimary, android.R.attr.textColorSecondary });
+        int textColor = a.getColor(0, Color.DKGRAY);
+        int secondaryTextColor = a.getColor(1, Color.GRAY);
+        a.recycle();
+
+        Paint textPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        textPaint.setColor(textColor);
+        textPaint.setTextSize(TEXT_SIZE_SP * metrics.scaledDensity);
+        textPaint.setTypeface(Typeface.DEFAULT_BOLD);
+        label = new Label(textPaint);
+
+        Paint lastUpdatedPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        lastUpdatedPaint.setColor(secondaryTextColor);
+        lastUpdatedPaint.setTextSize(LAST_UPDATED_TEXT_SIZE_SP * metrics.scaledDensity);
+        lastUpdatedLabel = new Label(lastUpdatedPaint);
+
+        iconPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        iconPaint.setColor(secondaryTextColor);
+        iconPaint.setStyle(Paint.Style.FILL);
+
+        float spinnerStroke = SPINNER_STROKE_DP * metrics.density;
+        spinnerPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        spinnerPaint.setColor(secondaryTextColor);
+        spinnerPaint.setStyle(Paint.Style.STROKE);
+        spinnerPaint.setStrokeCap(Paint.Cap.ROUND);
+        spinnerPaint.setStrokeWidth(spinnerStroke);
+        spinnerBounds = new RectF(spinnerStroke / 2, spinnerStroke / 2, spinnerSize
+                - spinnerStroke / 2, spinnerSize - spinnerStroke / 2);
+
+        // arrow pointing down, in a box of arrowWidth x arrowHeight
+        float centerX = arrowWidth / 2f;
+        float shaftHalfWidth = arrowWidth / 6f;
+        float headTop = arrowHeight - arrowWidth * 0.7f;
+        arrowPath.moveTo(centerX - shaftHalfWidth, 0);
+        arrowPath.lineTo(centerX + shaftHalfWidth, 0);
+        arrowPath.lineTo(centerX + shaftHalfWidth, headTop);
+        arrowPath.lineTo(arrowWidth, headTop);
+        arrowPath.lineTo(centerX, arrowHeight);
+        arrowPath.lineTo(0, headTop);
+        arrowPath.lineTo(centerX - shaftHalfWidth, headTop);
+        arrowPath.close();
+
+        int textHeight = (int) Math.ceil(textPaint.descent() - textPaint.ascent());
+        rowHeight = Math.max(textHeight, Math.max(arrowHeight, spinnerSize));
+        lastUpdatedHeight = (int) Math.ceil(lastUpdatedPaint.descent()
+                - lastUpdatedPaint.ascent());
+    }
+
+    /**
+     * Returns the height of the content of this header, which is its height when
+     * its top margin is 0.
+     */
+    public int getContentHeight() {
+        return padding + rowHeight + padding + (lastUpdatedShown ? lastUpdatedHeight : 0);
+    }
+
+    /**
+     * Sets the top margin of the content of this header. Use
+     * {@code -getContentHeight()} to hide the header.
+     * 
+     * @param margin
+     *            The top margin, in pixels.
+     */
+    public void setTopMargin(int margin) {
+        if (margin != topMargin) {
+            topMargin = margin;
+            requestLayout();
+        }
+    }
+
+    public int getTopMargin() {
+        return topMargin;
+    }
+
+    /**
+     * Sets the main label of this header.
+     */
+    public void setText(String text) {
+        if (label.setText(text)) {
+            invalidate();
+        }
+    }
+
+    /**
+     * Sets the "last updated" label of this header. It is drawn only if
+     * {@link #setLastUpdatedShown(boolean)} was called with {@code true}.
+     */
+    public void setLastUpdatedText(String text) {
+        if (lastUpdatedLabel.setText(text) && lastUpdatedShown) {
+            invalidate();
+        }
+    }
+
+    /**
+     * Shows or hides the "last updated" label, which changes the height of the
+     * content. A hidden header stays hidden.
+     */
+    public void setLastUpdatedShown(boolean shown) {
+        if (shown == lastUpdatedShown) {
+            return;
+        }
+        boolean hidden = topMargin == -getContentHeight();
+        lastUpdatedShown = shown;
+        if (hidden) {
+            topMargin = -getContentHeight();
+        }
+        requestLayout();
+    }
+
+    /**
+     * Shows the spinner instead of the arrow, or the arrow instead of the spinner.
+     */
+    public void setSpinnerShown(boolean shown) {
+        if (shown != spinnerShown) {
+            spinnerShown = shown;
+            invalidate();
+        }
+    }
+
+    /**
+     * Sets the rotation of the arrow, in degrees. At 0, the arrow points down.
+     */
+    public void setArrowRotation(float rotation) {
+        if (rotation != arrowRotation) {
+            arrowRotation = rotation;
+            if (!spinnerShown) {
+                invalidate();
+            }
+        }
+    }
+
+    public float getArrowRotation() {
+        return arrowRotation;
+    }
+
+    /**
+     * Sets the rotation of the spinner, in degrees.
+     */
+    public void setSpinnerRotation(float rotation) {
+        if (rotation != spinnerRotation) {
+            spinnerRotation = rotation;
+            if (spinnerShown) {
+                invalidate();
+            }
+        }
+    }
+
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        setMeasuredDimension(MeasureSpec.getSize(widthMeasureSpec),
+                Math.max(0, getContentHeight() + topMargin));
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        int saveCount = canvas.save();
+        canvas.translate(0, topMargin);
+        drawContent(canvas);
+        canvas.restoreToCount(saveCount);
+    }
+
+    /**
+     * Draws the whole content of this header, ignoring its top margin, from the
+     * current origin of the specified canvas.
+     * 
+     * @param canvas
+     *            The canvas to draw on.
+     */
+    public void drawContent(Canvas canvas) {
+        float rowCenterY = padding + rowHeight / 2f;
+        int saveCount = canvas.save();
+        if (spinnerShown) {
+            canvas.translate(iconLeft, rowCenterY - spinnerSize / 2f);
+            canvas.rotate(spinnerRotation, spinnerSize / 2f, spinnerSize / 2f);
+            canvas.drawArc(spinnerBounds, 0, SPINNER_SWEEP_ANGLE, false, spinnerPaint);
+        } else {
+            canvas.translate(iconLeft, rowCenterY - arrowHeight / 2f);
+            canvas.rotate(arrowRotation, arrowWidth / 2f, arrowHeight / 2f);
+            canvas.drawPath(arrowPath, iconPaint);
+        }
+        canvas.restoreToCount(saveCount);
+
+        float centerX = getWidth() / 2f;
+        label.draw(canvas, centerX, rowCenterY);
+        if (lastUpdatedShown) {
+            lastUpdatedLabel.draw(canvas, centerX, padding + rowHeight + padding
+                    + lastUpdatedHeight / 2f);
+        }
+    }
+}
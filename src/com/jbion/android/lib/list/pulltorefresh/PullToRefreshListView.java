@@ -1,31 +1,33 @@
 package com.jbion.android.lib.list.pulltorefresh;
 
 import java.text.SimpleDateFormat;
-import java.util.Date;
 
 import android.content.Context;
+import android.graphics.Canvas;
+import android.os.Parcel;
+import android.os.Parcelable;
+import android.os.SystemClock;
 import android.util.AttributeSet;
 import android.util.Log;
-import android.view.LayoutInflater;
 import android.view.MotionEvent;
 import android.view.View;
-import android.view.ViewGroup;
-import android.view.ViewTreeObserver;
-import android.view.ViewTreeObserver.OnGlobalLayoutListener;
-import android.view.animation.Animation;
-import android.view.animation.Animation.AnimationListener;
 import android.view.animation.LinearInterpolator;
 import android.view.animation.OvershootInterpolator;
-import android.view.animation.RotateAnimation;
-import android.view.animation.TranslateAnimation;
 import android.widget.AdapterView;
-import android.widget.ImageView;
+import android.widget.BaseAdapter;
+import android.widget.ListAdapter;
 import android.widget.ListView;
-import android.widget.TextView;
+import android.widget.WrapperListAdapter;
 import android.widget.AdapterView.OnItemClickListener;
 import android.widget.AdapterView.OnItemLongClickListener;
 
-import com.jbion.android.pulltorefresh.R;
+import com.jbion.android.lib.list.FrameCoalescer;
+import com.jbion.android.lib.list.ListDiff;
+import com.nineoldandroids.animation.Animator;
+import com.nineoldandroids.animation.AnimatorFloatUpdateListener;
+import com.nineoldandroids.animation.AnimatorIntUpdateListener;
+import com.nineoldandroids.animation.AnimatorListenerAdapter;
+import com.nineoldandroids.animation.ValueAnimator;
 
 /**
  * A customizable Android {@code ListView} implementation that has 'Pull to Refresh'
@@ -48,6 +50,13 @@ import com.jbion.android.pulltorefresh.R;
  * view. It will still have to call {@link #onRefreshComplete()} when refreshing is
  * finished, for state consistency.
  * </p>
+ * <p>
+ * Refreshes are coordinated by the list: a refresh is never started while another
+ * one is in progress, {@link #setMinRefreshInterval(long)} prevents refreshes from
+ * following each other too closely, and {@link #setRefreshTimeout(long)} completes
+ * a refresh that takes too long. Each refresh gets a {@link RefreshToken}, which
+ * tells the listener whether its refresh was canceled.
+ * </p>
  */
 public class PullToRefreshListView extends ListView {
 
@@ -61,8 +70,59 @@ public class PullToRefreshListView extends ListView {
 
         /**
          * Called when a refresh is requested.
+         * 
+         * @param token
+         *            The token of this refresh, which is canceled if the refresh
+         *            times out or if the list is detached from its window before
+         *            the refresh is complete.
          */
-        public void onPullToRefresh();
+        public void onPullToRefresh(RefreshToken token);
+    }
+
+    /**
+     * Identifies a single refresh of a {@link PullToRefreshListView}. Except for
+     * {@link #isCanceled()}, its methods must be called from the UI thread.
+     */
+    public final class RefreshToken {
+
+        private volatile boolean canceled = false;
+
+        private RefreshToken() {
+        }
+
+        /**
+         * Returns whether this refresh was canceled, in which case its results
+         * should be dropped. A canceled refresh does not need to be completed. This
+         * method can be called from any thread, to stop loading early.
+         * 
+         * @return {@code true} if this refresh was canceled.
+         */
+        public boolean isCanceled() {
+            return canceled;
+        }
+
+        /**
+         * Completes this refresh, like {@link PullToRefreshListView#onRefreshComplete()}
+         * does, unless this refresh was already completed or canceled. Unlike
+         * {@code onRefreshComplete()}, this cannot complete a later refresh by
+         * mistake.
+         */
+        public void complete() {
+            if (this == currentRefresh) {
+                onRefreshComplete();
+            }
+        }
+
+        /**
+         * Cancels this refresh, for instance because it failed, unless it was
+         * already completed or canceled. The header is pushed back, but the time of
+         * the last update is not changed.
+         */
+        public void cancel() {
+            if (this == currentRefresh) {
+                endRefresh(false);
+            }
+        }
     }
 
     private static final float PULL_RESISTANCE = 1.7f;
@@ -71,6 +131,8 @@ public class PullToRefreshListView extends ListView {
     private static final int ROTATE_ARROW_ANIMATION_DURATION = 250;
     /** Duration of the animation to send the header back to the top (when released). */
     private static final int BOUNCE_ANIMATION_DURATION = 500;
+    /** Duration of a full turn of the spinner of the header. */
+    private static final int SPINNER_TURN_DURATION = 1000;
 
     /**
      * The current 0 value disables overshoot when bouncing the header back. It could
@@ -105,25 +167,21 @@ public class PullToRefreshListView extends ListView {
     private String pullToRefreshText = "Pull to refresh";
     private String releaseToRefreshText = "Release to refresh";
     private String refreshingText = "Loading…";
-    private String lastUpdatedText = "Updated: %1$s";
-
-    private java.text.DateFormat lastUpdatedDateFormat = SimpleDateFormat.getDateTimeInstance();
 
     private boolean lockScrollWhileRefreshing = false;
     private boolean showLastUpdatedText = false;
     private boolean refreshingHeaderEnabled = true;
+    private boolean revealByTranslation = false;
+    private boolean overlayHeader = false;
     private int pullThreshold = 0;
+    private long minRefreshInterval = 0;
+    private long refreshTimeout = 0;
 
     /*
      * Header view
      */
 
-    private View headerContainer;
-    private View header;
-    private ImageView image;
-    private View spinner;
-    private TextView text;
-    private TextView lastUpdatedTextView;
+    private PullToRefreshHeader header;
 
     /*
      * Private business logic
@@ -131,10 +189,11 @@ public class PullToRefreshListView extends ListView {
 
     protected State state;
 
-    private RotateAnimation ccwRotation;
-    private RotateAnimation cwRotation;
+    /** Rotates the arrow between pointing down (0) and up (-180). */
+    private ValueAnimator arrowAnimator;
+    /** Turns the spinner of the header while refreshing. */
+    private ValueAnimator spinnerAnimator;
 
-    private int measuredHeaderHeight;
     private boolean scrollbarEnabled;
     private boolean scrollbarHidden = false;
 
@@ -143,42 +202,79 @@ public class PullToRefreshListView extends ListView {
     private int headerTopMargin;
 
     private boolean hasResetHeader;
-    private long lastUpdated = -1;
+    private final LastUpdatedLabel lastUpdatedLabel = new LastUpdatedLabel();
+
+    /** The refresh in progress, {@code null} if the list is not refreshing. */
+    private RefreshToken currentRefresh;
+    /** Start time of the last refresh, in {@link SystemClock#uptimeMillis()}. */
+    private long lastRefreshStart = -1;
+    /** Ends the refresh in progress when it times out. */
+    private final Runnable refreshTimeoutRunnable = new Runnable() {
+        @Override
+        public void run() {
+            Log.w(LOG_TAG, "refresh timed out after " + refreshTimeout + "ms");
+            endRefresh(false);
+        }
+    };
+
+    /** Offset of the content when the header is revealed by translation. */
+    private int revealOffset;
+    /** Animates {@link #revealOffset} when the header is pushed back. */
+    private ValueAnimator revealAnimator;
+    /** Whether the running bounce hides and resets the header. */
+    private boolean bounceResetsHeader;
+    /** Whether the user grabbed the header on its way back to the refreshing position. */
+    private boolean refreshingHeaderGrabbed;
+    /** Whether super stopped receiving touch events because of a translated pull. */
+    private boolean superTouchSuspended;
+    /** Shift applied to the touch events of the current gesture, in overlay mode. */
+    private int touchShift;
+
+    /** The header margin requested by the last move of the pull. */
+    private int pendingHeaderMargin;
+    /** Applies {@link #pendingHeaderMargin} once per frame. */
+    private final FrameCoalescer pullCoalescer = new FrameCoalescer(this, new Runnable() {
+        @Override
+        public void run() {
+            applyHeaderPull(pendingHeaderMargin);
+        }
+    });
 
     {
         setVerticalFadingEdgeEnabled(false);
 
-        // arrow counterclockwise rotation animation
-        ccwRotation = new RotateAnimation(0, -180, RotateAnimation.RELATIVE_TO_SELF, 0.5f,
-                RotateAnimation.RELATIVE_TO_SELF, 0.5f);
-        ccwRotation.setInterpolator(new LinearInterpolator());
-        ccwRotation.setDuration(ROTATE_ARROW_ANIMATION_DURATION);
-        ccwRotation.setFillAfter(true);
-
-        // arrow clockwise rotation animation
-        cwRotation = new RotateAnimation(-180, 0, RotateAnimation.RELATIVE_TO_SELF, 0.5f,
-                RotateAnimation.RELATIVE_TO_SELF, 0.5f);
-        cwRotation.setInterpolator(new LinearInterpolator());
-        cwRotation.setDuration(ROTATE_ARROW_ANIMATION_DURATION);
-        cwRotation.setFillAfter(true);
+        // arrow rotation animation, the start and end values are set when started
+        arrowAnimator = ValueAnimator.ofFloat(0, -180).setDuration(
+                ROTATE_ARROW_ANIMATION_DURATION);
+        arrowAnimator.setInterpolator(new LinearInterpolator());
+        arrowAnimator.addFloatUpdateListener(new AnimatorFloatUpdateListener() {
+            @Override
+            public void onAnimationUpdate(ValueAnimator animation, float rotation) {
+                header.setArrowRotation(rotation);
+                invalidateDrawnHeader();
+            }
+        });
+
+        // spinner animation
+        spinnerAnimator = ValueAnimator.ofFloat(0, 360).setDuration(SPINNER_TURN_DURATION);
+        spinnerAnimator.setInterpolator(new LinearInterpolator());
+        spinnerAnimator.setRepeatCount(ValueAnimator.INFINITE);
+        spinnerAnimator.addFloatUpdateListener(new AnimatorFloatUpdateListener() {
+            @Override
+            public void onAnimationUpdate(ValueAnimator animation, float rotation) {
+                header.setSpinnerRotation(rotation);
+                invalidateDrawnHeader();
+            }
+        });
 
         // initialize this property to super's value
         scrollbarEnabled = super.isVerticalScrollBarEnabled();
 
-        // header initialization
-        headerContainer = LayoutInflater.from(getContext()).inflate(
-                R.layout.pull_to_refresh_header, null);
-        header = headerContainer.findViewById(R.id.ptr_id_header);
-        text = (TextView) headerContainer.findViewById(R.id.ptr_id_text);
-        image = (ImageView) headerContainer.findViewById(R.id.ptr_id_image);
-        spinner = headerContainer.findViewById(R.id.ptr_id_spinner);
-        lastUpdatedTextView = (TextView) headerContainer.findViewById(R.id.ptr_id_last_updated);
-        addHeaderView(headerContainer);
-
+        // header initialization, hidden at first
+        header = new PullToRefreshHeader(getContext());
+        addHeaderView(header);
         setState(State.PULL_TO_REFRESH);
-
-        ViewTreeObserver vto = header.getViewTreeObserver();
-        vto.addOnGlobalLayoutListener(new HeaderHeightMeasurer());
+        setHeaderMargin(-header.getContentHeight());
 
         // to intercept OnItemClick and fix position issues
         super.setOnItemClickListener(new OnItemClickPositionFixer());
@@ -224,9 +320,18 @@ public class PullToRefreshListView extends ListView {
      * 'pull to refresh', for example on start.
      */
     public void setRefreshing() {
+        if (currentRefresh != null) {
+            // already refreshing
+            return;
+        }
+        startRefresh();
         scrollTo(0, 0);
         setState(State.REFRESHING);
-        setHeaderMargin(0);
+        if (overlayHeader) {
+            setRevealOffset(header.getContentHeight());
+        } else {
+            setHeaderMargin(0);
+        }
     }
 
     /**
@@ -240,11 +345,91 @@ public class PullToRefreshListView extends ListView {
 
     /**
      * Notifies this list that the user class is done refreshing the data.
+     * 
+     * @see RefreshToken#complete()
      */
     public void onRefreshComplete() {
-        lastUpdated = System.currentTimeMillis();
+        endRefresh(true);
+    }
+
+    /**
+     * Starts a new refresh, which becomes the refresh in progress.
+     * 
+     * @return The token of the new refresh.
+     */
+    private RefreshToken startRefresh() {
+        currentRefresh = new RefreshToken();
+        lastRefreshStart = SystemClock.uptimeMillis();
+        removeCallbacks(refreshTimeoutRunnable);
+        if (refreshTimeout > 0) {
+            postDelayed(refreshTimeoutRunnable, refreshTimeout);
+        }
+        return currentRefresh;
+    }
+
+    /**
+     * Returns whether a refresh triggered now would start too soon after the last
+     * one.
+     */
+    private boolean isRefreshThrottled() {
+        return lastRefreshStart != -1
+                && SystemClock.uptimeMillis() - lastRefreshStart < minRefreshInterval;
+    }
+
+    /**
+     * Ends the refresh in progress, and pushes the header back.
+     * 
+     * @param completed
+     *            {@code true} if the refresh completed, {@code false} to cancel it.
+     */
+    private void endRefresh(boolean completed) {
+        if (currentRefresh != null) {
+            currentRefresh.canceled = !completed;
+            currentRefresh = null;
+            removeCallbacks(refreshTimeoutRunnable);
+        }
+        if (completed) {
+            lastUpdatedLabel.setUpdateTime(System.currentTimeMillis());
+        }
         if (!isPullingOnHeader()) {
             pushHeaderBack(true);
+        } else if (refreshingHeaderGrabbed) {
+            // the header is held by the user, it will be pushed back on release
+            refreshingHeaderGrabbed = false;
+            setState(State.PULL_TO_REFRESH);
+        }
+    }
+
+    /**
+     * Notifies this list that the data of its adapter was modified as described by
+     * the specified diff.
+     * <p>
+     * This implementation notifies the adapter if it is a {@link BaseAdapter}.
+     * Subclasses may use the operations of the diff to update the views and their
+     * own state incrementally.
+     * </p>
+     * 
+     * @param diff
+     *            The operations that were applied to the data of the adapter.
+     * @see ListDiff#applyTo(java.util.List, java.util.List)
+     */
+    public void dispatchDiff(ListDiff diff) {
+        if (!diff.isEmpty()) {
+            notifyUserAdapter();
+        }
+    }
+
+    /**
+     * Notifies the adapter of the using class that its data changed, if it is a
+     * {@link BaseAdapter}.
+     */
+    protected void notifyUserAdapter() {
+        ListAdapter adapter = getAdapter();
+        if (adapter instanceof WrapperListAdapter) {
+            adapter = ((WrapperListAdapter) adapter).getWrappedAdapter();
+        }
+        if (adapter instanceof BaseAdapter) {
+            ((BaseAdapter) adapter).notifyDataSetChanged();
         }
     }
 
@@ -296,7 +481,7 @@ public class PullToRefreshListView extends ListView {
     public void setTextPullToRefresh(String pullToRefreshText) {
         this.pullToRefreshText = pullToRefreshText;
         if (state == State.PULL_TO_REFRESH) {
-            text.setText(pullToRefreshText);
+            header.setText(pullToRefreshText);
         }
     }
 
@@ -310,7 +495,7 @@ public class PullToRefreshListView extends ListView {
     public void setTextReleaseToRefresh(String releaseToRefreshText) {
         this.releaseToRefreshText = releaseToRefreshText;
         if (state == State.RELEASE_TO_REFRESH) {
-            text.setText(releaseToRefreshText);
+            header.setText(releaseToRefreshText);
         }
     }
 
@@ -325,7 +510,7 @@ public class PullToRefreshListView extends ListView {
     public void setTextRefreshing(String refreshingText) {
         this.refreshingText = refreshingText;
         if (state == State.REFRESHING) {
-            text.setText(refreshingText);
+            header.setText(refreshingText);
         }
     }
 
@@ -348,11 +533,7 @@ public class PullToRefreshListView extends ListView {
      */
     public void showLastUpdatedText(boolean show) {
         this.showLastUpdatedText = show;
-        if (show) {
-            lastUpdatedTextView.setVisibility(View.VISIBLE);
-        } else {
-            lastUpdatedTextView.setVisibility(View.GONE);
-        }
+        header.setLastUpdatedShown(show);
     }
 
     /**
@@ -378,6 +559,61 @@ public class PullToRefreshListView extends ListView {
         this.refreshingHeaderEnabled = enabled;
     }
 
+    /**
+     * Defines how the header is revealed while the user pulls on it. Default is
+     * {@code false}.
+     * <ul>
+     * <li>If {@code false}, a top margin is set on the header, which means the list
+     * is laid out again on every move of the pull.</li>
+     * <li>If {@code true}, the content of the list is drawn with an offset, and the
+     * header is drawn in the space revealed above it. No measure or layout pass
+     * happens during the pull nor the bounce back, the header is only laid out once
+     * released in its refreshing position.</li>
+     * </ul>
+     * 
+     * @param enabled
+     *            Whether to reveal the header by translation.
+     */
+    public void setRevealHeaderByTranslation(boolean enabled) {
+        this.revealByTranslation = enabled;
+    }
+
+    /**
+     * Defines whether the header is drawn as an overlay above the content, instead
+     * of being a header view of the list. Default is {@code false}.
+     * <p>
+     * As an overlay, the header is revealed by translation (see
+     * {@link #setRevealHeaderByTranslation(boolean)}), but it is never laid out in
+     * the list: the adapter is not wrapped, the list is not laid out because of a
+     * pull, and the positions of the items are the positions in the adapter. While
+     * refreshing, the content stays offset by the height of the header, which hides
+     * the bottom of the content.
+     * </p>
+     * <p>
+     * This must be called before {@link #setAdapter(ListAdapter)} and before adding
+     * other header views.
+     * </p>
+     * 
+     * @param enabled
+     *            Whether to draw the header as an overlay.
+     */
+    public void setHeaderOverlay(boolean enabled) {
+        if (enabled == overlayHeader) {
+            return;
+        }
+        overlayHeader = enabled;
+        if (enabled) {
+            removeHeaderView(header);
+            // the header is not hidden by its margin anymore
+            setHeaderMargin(0);
+            setRevealOffset(0);
+        } else {
+            addHeaderView(header);
+            setHeaderMargin(-header.getContentHeight());
+        }
+        requestLayout();
+    }
+
     /**
      * Sets the space threshold above the header to trigger the refresh event on
      * release. Defaults to 0, which means the state will be "pull to refresh" while
@@ -392,6 +628,31 @@ public class PullToRefreshListView extends ListView {
         this.pullThreshold = pullThreshold;
     }
 
+    /**
+     * Sets the minimum time between the starts of two refreshes. When the header
+     * is released sooner, it is pushed back without refreshing. Default is 0.
+     * 
+     * @param minRefreshInterval
+     *            The minimum interval, in milliseconds.
+     */
+    public void setMinRefreshInterval(long minRefreshInterval) {
+        this.minRefreshInterval = minRefreshInterval;
+    }
+
+    /**
+     * Sets the time after which a refresh that was not completed is canceled and
+     * the header is pushed back, as if {@link #onRefreshComplete()} was called. The
+     * time of the last update is not changed in this case. Default is 0, which
+     * means no timeout.
+     * 
+     * @param refreshTimeout
+     *            The timeout, in milliseconds, or 0 for no timeout. Applies to the
+     *            refreshes started after this call.
+     */
+    public void setRefreshTimeout(long refreshTimeout) {
+        this.refreshTimeout = refreshTimeout;
+    }
+
     /**
      * Set the format in which the last-updated date/time is shown. Meaningless if
      * 'showLastUpdatedText == false (default)'. See 'setShowLastUpdatedText'.
@@ -399,7 +660,75 @@ public class PullToRefreshListView extends ListView {
      * @param lastUpdatedDateFormat
      */
     public void setLastUpdatedDateFormat(SimpleDateFormat lastUpdatedDateFormat) {
-        this.lastUpdatedDateFormat = lastUpdatedDateFormat;
+        lastUpdatedLabel.setDateFormat(lastUpdatedDateFormat);
+        refreshLastUpdatedText();
+    }
+
+    /**
+     * Sets the template of the last-updated text. Default is "Updated: %1$s".
+     * 
+     * @param lastUpdatedText
+     *            A format string, where {@code %1$s} is replaced by the relative
+     *            time of the last refresh, or by its date once it is more than a day
+     *            old.
+     */
+    public void setTextLastUpdated(String lastUpdatedText) {
+        lastUpdatedLabel.setTemplate(lastUpdatedText);
+        refreshLastUpdatedText();
+    }
+
+    /**
+     * Sets the texts of the relative time of the last refresh, shown in the
+     * last-updated text during the first day. Defaults are "just now",
+     * "%1$d min ago" and "%1$d h ago".
+     * 
+     * @param justNowText
+     *            The text shown during the first minute.
+     * @param minutesAgoText
+     *            A format string shown during the first hour, where {@code %1$d} is
+     *            replaced by the number of minutes.
+     * @param hoursAgoText
+     *            A format string shown during the first day, where {@code %1$d} is
+     *            replaced by the number of hours.
+     */
+    public void setTextsLastUpdatedAgo(String justNowText, String minutesAgoText,
+            String hoursAgoText) {
+        lastUpdatedLabel.setRelativeTexts(justNowText, minutesAgoText, hoursAgoText);
+        refreshLastUpdatedText();
+    }
+
+    /**
+     * Shows the last-updated text again if it is visible, after its texts changed.
+     */
+    private void refreshLastUpdatedText() {
+        if (state == State.PULL_TO_REFRESH) {
+            setState(State.PULL_TO_REFRESH);
+        }
+    }
+
+    /**
+     * Returns the time of the last refresh, as set by {@link #onRefreshComplete()}
+     * or {@link #setLastUpdated(long)}.
+     * 
+     * @return The time of the last refresh, in milliseconds since the epoch, or -1
+     *         if this list was never refreshed.
+     */
+    public long getLastUpdated() {
+        return lastUpdatedLabel.getUpdateTime();
+    }
+
+    /**
+     * Sets the time of the last refresh, shown in the 'Pull to Refresh' header if
+     * 'showLastUpdatedText == true'. The state of this list already keeps it across
+     * configuration changes; use this to restore a time persisted by the using
+     * class after a restart of the application.
+     * 
+     * @param lastUpdated
+     *            The time of the last refresh, in milliseconds since the epoch, or
+     *            -1 if this list was never refreshed.
+     */
+    public void setLastUpdated(long lastUpdated) {
+        lastUpdatedLabel.setUpdateTime(lastUpdated);
     }
 
     /*
@@ -419,20 +748,18 @@ public class PullToRefreshListView extends ListView {
         this.state = state;
         switch (state) {
         case PULL_TO_REFRESH:
-            spinner.setVisibility(View.INVISIBLE);
-            image.setVisibility(View.VISIBLE);
-            text.setText(pullToRefreshText);
-            if (showLastUpdatedText && lastUpdated != -1) {
-                lastUpdatedTextView.setVisibility(View.VISIBLE);
-                lastUpdatedTextView.setText(String.format(lastUpdatedText,
-                        lastUpdatedDateFormat.format(new Date(lastUpdated))));
+            header.setSpinnerShown(false);
+            header.setText(pullToRefreshText);
+            if (showLastUpdatedText && lastUpdatedLabel.hasUpdateTime()) {
+                header.setLastUpdatedShown(true);
+                // formatted again only if the label is outdated
+                header.setLastUpdatedText(lastUpdatedLabel.get(System.currentTimeMillis()));
             }
             break;
 
         case RELEASE_TO_REFRESH:
-            spinner.setVisibility(View.INVISIBLE);
-            image.setVisibility(View.VISIBLE);
-            text.setText(releaseToRefreshText);
+            header.setSpinnerShown(false);
+            header.setText(releaseToRefreshText);
             break;
 
         case REFRESHING:
@@ -442,13 +769,20 @@ public class PullToRefreshListView extends ListView {
              * header.
              */
             if (refreshingHeaderEnabled) {
-                spinner.setVisibility(View.VISIBLE);
-                image.clearAnimation();
-                image.setVisibility(View.INVISIBLE);
-                text.setText(refreshingText);
+                header.setSpinnerShown(true);
+                resetArrow();
+                header.setText(refreshingText);
             }
             break;
         }
+        invalidateDrawnHeader();
+        if (state == State.REFRESHING && refreshingHeaderEnabled) {
+            if (!spinnerAnimator.isRunning()) {
+                spinnerAnimator.start();
+            }
+        } else {
+            spinnerAnimator.cancel();
+        }
     }
 
     /**
@@ -462,6 +796,10 @@ public class PullToRefreshListView extends ListView {
      * When {@link MotionEvent#ACTION_UP} is received, the header is pushed back to
      * the top, and the refresh event is triggered (depending on current state).
      * </p>
+     * <p>
+     * A touch while the header is pushed back stops it where it is, and the user
+     * pulls it from there.
+     * </p>
      */
     @Override
     public boolean onTouchEvent(MotionEvent event) {
@@ -475,52 +813,71 @@ public class PullToRefreshListView extends ListView {
             Log.w(LOG_TAG, "touch event ignored while refreshing");
             return true;
         }
-        if (getAnimation() != null && !getAnimation().hasEnded()) {
-            // disable touch/scroll while animating the list
-            Log.w(LOG_TAG, "touch event ignored while animating");
-            return true;
+        if (isBouncing()) {
+            int action = event.getAction();
+            if (action != MotionEvent.ACTION_DOWN && action != MotionEvent.ACTION_MOVE) {
+                return super.onTouchEvent(event);
+            }
+            grabHeader(event);
         }
 
         switch (event.getAction()) {
         case MotionEvent.ACTION_UP:
             if (isPullingOnHeader()) {
+                // the state must match the last position of the pull
+                pullCoalescer.flush();
                 switch (state) {
                 case RELEASE_TO_REFRESH:
                     // pulled enough, refresh!
-                    if (onRefreshListener == null) {
-                        // no loading to do
+                    if (onRefreshListener == null || currentRefresh != null
+                            || isRefreshThrottled()) {
+                        // no loading to do, a refresh already running (its header
+                        // hidden), or too soon after the last refresh
                         pushHeaderBack(true);
                     } else {
+                        RefreshToken token = startRefresh();
                         setState(State.REFRESHING);
                         pushHeaderBack(!refreshingHeaderEnabled);
-                        onRefreshListener.onPullToRefresh();
+                        onRefreshListener.onPullToRefresh(token);
                     }
                     break;
                 case PULL_TO_REFRESH:
                     // not pulled enough, push header back
                     pushHeaderBack(true);
                     break;
+                case REFRESHING:
+                    if (refreshingHeaderGrabbed) {
+                        // put the header back in its refreshing position
+                        pushHeaderBack(!refreshingHeaderEnabled);
+                    }
+                    break;
                 default:
                     break;
                 }
+                refreshingHeaderGrabbed = false;
                 // not pulling anymore
                 setPullingOnHeader(false);
                 unhideScrollBar();
                 Log.d(LOG_TAG, "Header released");
             }
+            superTouchSuspended = false;
             break;
 
         case MotionEvent.ACTION_CANCEL:
+            pullCoalescer.cancel();
             pushHeaderBack(true);
+            refreshingHeaderGrabbed = false;
+            superTouchSuspended = false;
             setPullingOnHeader(false);
             unhideScrollBar();
             Log.d(LOG_TAG, "Header pull canceled");
             break;
 
         case MotionEvent.ACTION_MOVE:
-            if (getFirstVisiblePosition() > HEADER_POSITION) {
+            if (!isHeaderReachable()) {
                 // header not visible
                 if (isPullingOnHeader()) {
+                    pullCoalescer.cancel();
                     setPullingOnHeader(false);
                     unhideScrollBar();
                 }
@@ -540,30 +897,17 @@ public class PullToRefreshListView extends ListView {
                 float relativeY = absoluteY - pullOrigin;
                 relativeY /= PULL_RESISTANCE;
 
-                int newHeaderMargin = Math.max(Math.round(relativeY) - header.getHeight(),
-                        -header.getHeight());
-
-                if (newHeaderMargin != headerTopMargin && state != State.REFRESHING) {
-                    // update margin for the pull effect
-                    setHeaderMargin(newHeaderMargin);
-
-                    if (state == State.PULL_TO_REFRESH && headerTopMargin > pullThreshold) {
-                        // header pulled beyond the threshold
-                        Log.d(LOG_TAG, "Pull threshold exceeded");
-                        setState(State.RELEASE_TO_REFRESH);
-                        image.clearAnimation();
-                        image.startAnimation(ccwRotation);
-                    } else if (state == State.RELEASE_TO_REFRESH && headerTopMargin < pullThreshold) {
-                        // header pushed back below the threshold
-                        Log.d(LOG_TAG, "Push back threshold");
-                        setState(State.PULL_TO_REFRESH);
-                        image.clearAnimation();
-                        image.startAnimation(cwRotation);
-                    }
+                int headerHeight = header.getContentHeight();
+                int newHeaderMargin = Math.max(Math.round(relativeY) - headerHeight,
+                        -headerHeight);
 
-                    // hack to disable scrolling while pushing back up
-                    setSelection(HEADER_POSITION);
-                    // TODO find something cleaner (return true does not work)
+                if (isHeaderPullable()) {
+                    // the pull effect is applied once per frame, with the last move
+                    pendingHeaderMargin = newHeaderMargin;
+                    pullCoalescer.schedule();
+                }
+                if (isRevealedByOffset()) {
+                    return dispatchTranslatedPullMove(event, newHeaderMargin > -headerHeight);
                 }
                 return super.onTouchEvent(event) || true;
             } else {
@@ -573,18 +917,280 @@ public class PullToRefreshListView extends ListView {
         return super.onTouchEvent(event);
     }
 
+    /**
+     * Applies the pull effect for the specified header margin, and updates the state
+     * if the pull threshold is crossed.
+     * 
+     * @param newHeaderMargin
+     *            The top margin of the header matching the pull distance.
+     */
+    private void applyHeaderPull(int newHeaderMargin) {
+        if (newHeaderMargin == headerTopMargin || !isHeaderPullable()) {
+            return;
+        }
+        // update margin for the pull effect
+        if (isRevealedByOffset()) {
+            setRevealOffset(newHeaderMargin + header.getContentHeight());
+        } else {
+            if (revealOffset != 0) {
+                // the header was grabbed while bouncing, lay it out where it is drawn
+                setRevealOffset(0);
+            }
+            setHeaderMargin(newHeaderMargin);
+        }
+
+        if (state == State.PULL_TO_REFRESH && headerTopMargin > pullThreshold) {
+            // header pulled beyond the threshold
+            Log.d(LOG_TAG, "Pull threshold exceeded");
+            setState(State.RELEASE_TO_REFRESH);
+            rotateArrow(-180);
+        } else if (state == State.RELEASE_TO_REFRESH && headerTopMargin < pullThreshold) {
+            // header pushed back below the threshold
+            Log.d(LOG_TAG, "Push back threshold");
+            setState(State.PULL_TO_REFRESH);
+            rotateArrow(0);
+        }
+
+        if (!isRevealedByOffset()) {
+            // hack to disable scrolling while pushing back up
+            setSelection(HEADER_POSITION);
+            // TODO find something cleaner (return true does not work)
+        }
+    }
+
+    /**
+     * Returns whether the header is revealed by offsetting the drawing of the
+     * content, rather than by laying it out with a margin.
+     */
+    private boolean isRevealedByOffset() {
+        return revealByTranslation || overlayHeader;
+    }
+
+    /**
+     * Returns whether the top of the list is reached, so that the header can be
+     * pulled.
+     */
+    private boolean isHeaderReachable() {
+        if (overlayHeader) {
+            return getFirstVisiblePosition() == 0
+                    && (getChildCount() == 0 || getChildAt(0).getTop() >= getPaddingTop());
+        }
+        return getFirstVisiblePosition() <= HEADER_POSITION;
+    }
+
+    /**
+     * Returns the position of the first item of the adapter in this list.
+     */
+    private int getFirstItemPosition() {
+        return overlayHeader ? 0 : FIRST_ITEM_POSITION;
+    }
+
+    /**
+     * Returns whether the pull moves the header. While refreshing, the header stays
+     * in place, unless the user grabbed it on its way back.
+     */
+    private boolean isHeaderPullable() {
+        return state != State.REFRESHING || refreshingHeaderGrabbed;
+    }
+
+    /**
+     * Stops the header bounce so that the user pulls the header from its current
+     * position. The header state is reset as it would have been at the end of the
+     * bounce.
+     * 
+     * @param event
+     *            The event that grabbed the header.
+     */
+    private void grabHeader(MotionEvent event) {
+        revealAnimator.cancel();
+        if (state == State.REFRESHING) {
+            if (bounceResetsHeader) {
+                setState(State.PULL_TO_REFRESH);
+                resetArrow();
+            } else {
+                refreshingHeaderGrabbed = true;
+            }
+        }
+        if (!isPullingOnHeader()) {
+            setPullingOnHeader(true);
+        }
+        // the header is where the pointer is, and follows it from there
+        pullOrigin = event.getY() - revealOffset * PULL_RESISTANCE;
+        Log.d(LOG_TAG, "Header grabbed while bouncing");
+    }
+
     /**
      * Sets the specified margin at the top of the header. To hide the header, use a
-     * value of {@code -header.getHeight()}
+     * value of {@code -header.getContentHeight()}
      * 
      * @param margin
      *            The top margin to set, in pixels.
      */
     private void setHeaderMargin(int margin) {
         headerTopMargin = margin;
-        MarginLayoutParams mlp = (ViewGroup.MarginLayoutParams) header.getLayoutParams();
-        mlp.setMargins(mlp.leftMargin, Math.round(margin), mlp.rightMargin, mlp.bottomMargin);
-        header.setLayoutParams(mlp);
+        // the list is laid out again only if the margin changed
+        header.setTopMargin(margin);
+    }
+
+    /**
+     * Sets the offset at which the content of the list is drawn, to reveal the header
+     * by translation. The header keeps its hidden layout.
+     * 
+     * @param offset
+     *            The height of the revealed space above the content, in pixels.
+     */
+    private void setRevealOffset(int offset) {
+        revealOffset = offset;
+        headerTopMargin = offset - header.getContentHeight();
+        invalidate();
+    }
+
+    /**
+     * Passes a move event of a translated pull to super, only while the header is
+     * not revealed. Otherwise, the list would scroll under the translated content,
+     * which {@code setSelection()} prevents in margin mode at the cost of a layout.
+     * 
+     * @param event
+     *            The move event.
+     * @param revealed
+     *            Whether this move reveals part of the header.
+     * @return {@code true}, the event is always consumed.
+     */
+    private boolean dispatchTranslatedPullMove(MotionEvent event, boolean revealed) {
+        if (revealed) {
+            if (!superTouchSuspended) {
+                superTouchSuspended = true;
+                dispatchSuperTouchEvent(event, MotionEvent.ACTION_CANCEL);
+            }
+            return true;
+        }
+        if (superTouchSuspended) {
+            // super missed the moves of the pull, start its gesture from here
+            superTouchSuspended = false;
+            dispatchSuperTouchEvent(event, MotionEvent.ACTION_DOWN);
+        }
+        super.onTouchEvent(event);
+        return true;
+    }
+
+    /**
+     * In overlay mode, shifts the touch events by the offset of the content, so that
+     * they reach the items where they are drawn. The shift is set at the start of a
+     * gesture, and does not follow the offset during a pull.
+     */
+    @Override
+    public boolean dispatchTouchEvent(MotionEvent ev) {
+        if (ev.getAction() == MotionEvent.ACTION_DOWN) {
+            touchShift = overlayHeader ? revealOffset : 0;
+        }
+        if (touchShift == 0) {
+            return super.dispatchTouchEvent(ev);
+        }
+        ev.offsetLocation(0, -touchShift);
+        boolean handled = super.dispatchTouchEvent(ev);
+        ev.offsetLocation(0, touchShift);
+        return handled;
+    }
+
+    private void dispatchSuperTouchEvent(MotionEvent event, int action) {
+        MotionEvent copy = MotionEvent.obtain(event);
+        copy.setAction(action);
+        super.onTouchEvent(copy);
+        copy.recycle();
+    }
+
+    /**
+     * Draws the content with the reveal offset, and the header in the space revealed
+     * above it.
+     */
+    @Override
+    protected void dispatchDraw(Canvas canvas) {
+        if (revealOffset <= 0) {
+            super.dispatchDraw(canvas);
+            return;
+        }
+        int saveCount = canvas.save();
+        canvas.translate(0, revealOffset);
+        super.dispatchDraw(canvas);
+        canvas.restoreToCount(saveCount);
+
+        if (overlayHeader && header.isLayoutRequested()) {
+            // the height of the header changed, it has no parent to lay it out
+            layoutOverlayHeader();
+        }
+        saveCount = canvas.save();
+        canvas.translate(header.getLeft(), header.getTop() + revealOffset
+                - header.getContentHeight());
+        header.drawContent(canvas);
+        canvas.restoreToCount(saveCount);
+    }
+
+    /**
+     * Invalidates this list if it draws the header, which is then either clipped out
+     * of its container or not attached at all, and can't invalidate itself.
+     */
+    private void invalidateDrawnHeader() {
+        if (revealOffset > 0) {
+            invalidate();
+        }
+    }
+
+    @Override
+    protected void onLayout(boolean changed, int l, int t, int r, int b) {
+        super.onLayout(changed, l, t, r, b);
+        if (overlayHeader) {
+            layoutOverlayHeader();
+        }
+    }
+
+    /**
+     * Measures and lays out the overlay header, which is not a child of this list.
+     */
+    private void layoutOverlayHeader() {
+        int oldHeight = header.getHeight();
+        int width = getWidth() - getPaddingLeft() - getPaddingRight();
+        header.measure(MeasureSpec.makeMeasureSpec(width, MeasureSpec.EXACTLY),
+                MeasureSpec.makeMeasureSpec(0, MeasureSpec.UNSPECIFIED));
+        header.layout(getPaddingLeft(), getPaddingTop(), getPaddingLeft() + width,
+                getPaddingTop() + header.getMeasuredHeight());
+        if (state == State.REFRESHING && revealOffset == oldHeight && !isBouncing()) {
+            // keep the refreshing header entirely revealed
+            setRevealOffset(header.getHeight());
+        }
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        // the spinner animation would hold this list forever
+        spinnerAnimator.cancel();
+        if (currentRefresh != null) {
+            // nobody would see the results of the refresh
+            endRefresh(false);
+        }
+    }
+
+    @Override
+    public Parcelable onSaveInstanceState() {
+        SavedState ss = new SavedState(super.onSaveInstanceState());
+        ss.lastUpdated = lastUpdatedLabel.getUpdateTime();
+        ss.lastUpdatedBucket = lastUpdatedLabel.getCachedBucket();
+        ss.lastUpdatedText = lastUpdatedLabel.getCachedLabel();
+        ss.lastUpdatedTextsKey = lastUpdatedLabel.getTextsKey();
+        return ss;
+    }
+
+    @Override
+    public void onRestoreInstanceState(Parcelable state) {
+        if (!(state instanceof SavedState)) {
+            super.onRestoreInstanceState(state);
+            return;
+        }
+        SavedState ss = (SavedState) state;
+        super.onRestoreInstanceState(ss.getSuperState());
+        lastUpdatedLabel.restore(ss.lastUpdated, ss.lastUpdatedBucket, ss.lastUpdatedText,
+                ss.lastUpdatedTextsKey);
+        refreshLastUpdatedText();
     }
 
     private void setPullingOnHeader(boolean pulling) {
@@ -620,7 +1226,9 @@ public class PullToRefreshListView extends ListView {
     }
 
     /**
-     * Starts an animation to push the header back to the top.
+     * Starts an animation to push the header back to the top. If the header is
+     * already bouncing, the animation is retargeted from the current position of the
+     * header.
      * 
      * @param allTheWayAndReset
      *            If {@code true}, the header will be pushed all the way to the top
@@ -629,49 +1237,139 @@ public class PullToRefreshListView extends ListView {
      *            reset).
      */
     private void pushHeaderBack(boolean allTheWayAndReset) {
-        if (getFirstVisiblePosition() > HEADER_POSITION) {
+        if (!isHeaderReachable()) {
             // header not visible, no animation needed
             if (allTheWayAndReset) {
                 resetHeader();
             }
             return;
         }
-        if (getAnimation() != null && !getAnimation().hasEnded()) {
-            // animation already in progress
-            Log.w(LOG_TAG, "trying to launch two push-back animations at the same time");
-            return;
+        if (isBouncing()) {
+            // the new animation starts where the current one is
+            revealAnimator.cancel();
         }
-        int yTranslate = allTheWayAndReset ? -headerContainer.getHeight()
-                - headerContainer.getTop() + getPaddingTop() : header.getHeight()
-                - headerContainer.getHeight();
-        TranslateAnimation bounceAnimation = new TranslateAnimation(TranslateAnimation.ABSOLUTE, 0,
-                TranslateAnimation.ABSOLUTE, 0, TranslateAnimation.ABSOLUTE, 0,
-                TranslateAnimation.ABSOLUTE, yTranslate);
-        bounceAnimation.setDuration(BOUNCE_ANIMATION_DURATION);
-        bounceAnimation.setFillEnabled(true);
-        bounceAnimation.setFillAfter(false);
-        bounceAnimation.setFillBefore(true);
-        bounceAnimation.setInterpolator(new OvershootInterpolator(BOUNCE_OVERSHOOT_TENSION));
-        bounceAnimation.setAnimationListener(new ListAnimationListener(yTranslate,
-                allTheWayAndReset));
-        startAnimation(bounceAnimation);
+        bounceRevealOffset(allTheWayAndReset);
+    }
+
+    /**
+     * Returns whether the header is being pushed back.
+     */
+    private boolean isBouncing() {
+        return revealAnimator != null && revealAnimator.isRunning();
+    }
+
+    /**
+     * Pushes the header back by animating the reveal offset of the content, without
+     * changing the layout params of the list. The list is laid out at most once
+     * before the animation, to hide the header if it is laid out visible, and once
+     * after, only if the header stays in its refreshing position.
+     * 
+     * @param allTheWayAndReset
+     *            See {@link #pushHeaderBack(boolean)}.
+     */
+    private void bounceRevealOffset(final boolean allTheWayAndReset) {
+        int headerHeight = header.getContentHeight();
+        int topMargin = header.getTopMargin();
+        if (!overlayHeader && topMargin != -headerHeight) {
+            // the header is laid out visible, hide it and draw it with the offset
+            int laidOutReveal = header.getTop() - getPaddingTop() + topMargin + headerHeight;
+            setHeaderMargin(-headerHeight);
+            setSelection(HEADER_POSITION);
+            setRevealOffset(revealOffset + laidOutReveal);
+        }
+        int target = allTheWayAndReset ? 0 : headerHeight;
+        revealAnimator = ValueAnimator.ofInt(revealOffset, target).setDuration(
+                BOUNCE_ANIMATION_DURATION);
+        revealAnimator.setInterpolator(new OvershootInterpolator(BOUNCE_OVERSHOOT_TENSION));
+        revealAnimator.addIntUpdateListener(new AnimatorIntUpdateListener() {
+            @Override
+            public void onAnimationUpdate(ValueAnimator animation, int offset) {
+                setRevealOffset(offset);
+            }
+        });
+        revealAnimator.addListener(new AnimatorListenerAdapter() {
+            private boolean canceled;
+
+            @Override
+            public void onAnimationCancel(Animator animation) {
+                // grabbed or retargeted, the header stays where it is
+                canceled = true;
+            }
+
+            @Override
+            public void onAnimationEnd(Animator animation) {
+                if (canceled) {
+                    return;
+                }
+                if (overlayHeader) {
+                    // the offset is the only position of the overlay header
+                    if (allTheWayAndReset) {
+                        resetHeader();
+                    }
+                } else {
+                    // replace the offset by the actual layout in the same frame
+                    setRevealOffset(0);
+                    if (allTheWayAndReset) {
+                        // the header is already laid out hidden
+                        resetHeader();
+                        if (getFirstVisiblePosition() > HEADER_POSITION
+                                || header.getHeight() > 0) {
+                            setSelection(FIRST_ITEM_POSITION);
+                        }
+                    } else {
+                        setHeaderMargin(0);
+                        setSelection(HEADER_POSITION);
+                    }
+                }
+                if (!isPullingOnHeader()) {
+                    unhideScrollBar();
+                }
+            }
+        });
+        bounceResetsHeader = allTheWayAndReset;
+        hideScrollBarTemporarily();
+        revealAnimator.start();
     }
 
     /**
      * Resets the header to its idle, invisible state.
      */
     private void resetHeader() {
-        setHeaderMargin(-header.getHeight());
+        if (overlayHeader) {
+            setRevealOffset(0);
+        } else {
+            setHeaderMargin(-header.getContentHeight());
+        }
         setState(State.PULL_TO_REFRESH);
-        image.clearAnimation();
+        resetArrow();
+    }
+
+    /**
+     * Starts the rotation of the arrow of the header from its current angle.
+     * 
+     * @param rotation
+     *            The angle to rotate the arrow to, 0 pointing down.
+     */
+    private void rotateArrow(float rotation) {
+        arrowAnimator.cancel();
+        arrowAnimator.setFloatValues(header.getArrowRotation(), rotation);
+        arrowAnimator.start();
+    }
+
+    /**
+     * Points the arrow of the header down, without animation.
+     */
+    private void resetArrow() {
+        arrowAnimator.cancel();
+        header.setArrowRotation(0);
     }
 
     @Override
     protected void onScrollChanged(int l, int t, int oldl, int oldt) {
         super.onScrollChanged(l, t, oldl, oldt);
         if (!hasResetHeader) {
-            if (measuredHeaderHeight > 0 && state != State.REFRESHING) {
-                setHeaderMargin(-measuredHeaderHeight);
+            if (state != State.REFRESHING && !overlayHeader) {
+                setHeaderMargin(-header.getContentHeight());
             }
             hasResetHeader = true;
         }
@@ -687,76 +1385,6 @@ public class PullToRefreshListView extends ListView {
      */
     protected void onHeaderPullStateChanged(boolean userPullingOnHeader, State pullState) {}
 
-    /**
-     * Listens to global list animations. Hides the scrollbar during the animations.
-     * Allows to run some code at the end of the animation.
-     */
-    private class ListAnimationListener implements AnimationListener {
-
-        private int height, translation;
-        private State stateAtAnimationStart;
-        private boolean resetAfterAnimation;
-
-        public ListAnimationListener(int translation, boolean resetAfterAnimation) {
-            this.translation = translation;
-            this.resetAfterAnimation = resetAfterAnimation;
-        }
-
-        @Override
-        public void onAnimationStart(Animation animation) {
-            stateAtAnimationStart = state;
-
-            // reduce this ListView's height
-            android.view.ViewGroup.LayoutParams lp = getLayoutParams();
-            height = lp.height;
-            lp.height = getHeight() + Math.abs(translation);
-            setLayoutParams(lp);
-
-            hideScrollBarTemporarily();
-        }
-
-        @Override
-        public void onAnimationEnd(Animation animation) {
-            if (resetAfterAnimation) {
-                resetHeader();
-                setSelection(FIRST_ITEM_POSITION);
-            } else {
-                // cut the margin that's now hidden
-                setHeaderMargin(stateAtAnimationStart == State.REFRESHING && refreshingHeaderEnabled ? 0 : -measuredHeaderHeight - headerContainer.getTop());
-                setSelection(HEADER_POSITION);
-            }
-
-            // restore this ListView's height
-            android.view.ViewGroup.LayoutParams lp = getLayoutParams();
-            lp.height = height;
-            setLayoutParams(lp);
-
-            unhideScrollBar();
-        }
-
-        @Override
-        public void onAnimationRepeat(Animation animation) {}
-    }
-
-    /**
-     * At the end of the layout construction, reads the header's height and hide it.
-     */
-    private class HeaderHeightMeasurer implements OnGlobalLayoutListener {
-        @SuppressWarnings("deprecation")
-        @Override
-        public void onGlobalLayout() {
-            int initialHeaderHeight = header.getHeight();
-            if (initialHeaderHeight > 0) {
-                measuredHeaderHeight = initialHeaderHeight;
-                if (state != State.REFRESHING) {
-                    setHeaderMargin(-measuredHeaderHeight);
-                    requestLayout();
-                }
-            }
-            getViewTreeObserver().removeGlobalOnLayoutListener(this);
-        }
-    }
-
     /**
      * Intercepts the {@code OnItemClick} event and translates the position indices
      * to ignore the header.
@@ -765,8 +1393,10 @@ public class PullToRefreshListView extends ListView {
         @Override
         public void onItemClick(AdapterView<?> adapterView, View view, int position, long id) {
             hasResetHeader = false;
-            if (userOnItemClickListener != null && position > HEADER_POSITION) {
-                userOnItemClickListener.onItemClick(adapterView, view, position - 1, id);
+            int firstItemPosition = getFirstItemPosition();
+            if (userOnItemClickListener != null && position >= firstItemPosition) {
+                userOnItemClickListener.onItemClick(adapterView, view, position
+                        - firstItemPosition, id);
             }
         }
     }
@@ -779,10 +1409,57 @@ public class PullToRefreshListView extends ListView {
         @Override
         public boolean onItemLongClick(AdapterView<?> adapterView, View view, int position, long id) {
             hasResetHeader = false;
-            if (userOnItemLongClickListener != null && position > HEADER_POSITION) {
-                return userOnItemLongClickListener.onItemLongClick(adapterView, view, position - 1, id);
+            int firstItemPosition = getFirstItemPosition();
+            if (userOnItemLongClickListener != null && position >= firstItemPosition) {
+                return userOnItemLongClickListener.onItemLongClick(adapterView, view, position
+                        - firstItemPosition, id);
             }
             return false;
         }
     }
+
+    /**
+     * The saved state of this list, keeping the time of the last refresh and its
+     * formatted label.
+     */
+    static class SavedState extends BaseSavedState {
+
+        long lastUpdated;
+        long lastUpdatedBucket;
+        String lastUpdatedText;
+        String lastUpdatedTextsKey;
+
+        SavedState(Parcelable superState) {
+            super(superState);
+        }
+
+        private SavedState(Parcel in) {
+            super(in);
+            lastUpdated = in.readLong();
+            lastUpdatedBucket = in.readLong();
+            lastUpdatedText = in.readString();
+            lastUpdatedTextsKey = in.readString();
+        }
+
+        @Override
+        public void writeToParcel(Parcel out, int flags) {
+            super.writeToParcel(out, flags);
+            out.writeLong(lastUpdated);
+            out.writeLong(lastUpdatedBucket);
+            out.writeString(lastUpdatedText);
+            out.writeString(lastUpdatedTextsKey);
+        }
+
+        public static final Parcelable.Creator<SavedState> CREATOR = new Parcelable.Creator<SavedState>() {
+            @Override
+            public SavedState createFromParcel(Parcel in) {
+                return new SavedState(in);
+            }
+
+            @Override
+            public SavedState[] newArray(int size) {
+                return new SavedState[size];
+            }
+        };
+    }
 }
@@ -0,0 +1,193 @@
+package com.jbion.android.lib.list.pulltorefresh;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+import android.os.AsyncTask;
+import android.util.Log;
+
+import com.jbion.android.lib.list.ListDiff;
+import com.jbion.android.lib.list.ListDiff.ItemCallback;
+import com.jbion.android.lib.list.PersistentList;
+import com.jbion.android.lib.list.VersionedList;
+import com.jbion.android.lib.list.pulltorefresh.PullToRefreshListView.OnPullToRefreshListener;
+import com.jbion.android.lib.list.pulltorefresh.PullToRefreshListView.RefreshToken;
+
+/**
+ * An {@link OnPullToRefreshListener} that loads the new items in the background,
+ * and applies only their differences with the current items on the UI thread.
+ * <p>
+ * When a refresh starts, the pipeline takes a snapshot of the items of the
+ * adapter. The new items are loaded and their {@link ListDiff} with the snapshot
+ * is computed in an {@link AsyncTask}. Back on the UI thread, the diff is applied
+ * to the items of the adapter, the list is notified via
+ * {@link PullToRefreshListView#dispatchDiff(ListDiff)}, and the refresh is
+ * completed. If the items were modified in the meantime, the diff is computed
+ * again against them. If loading fails, the refresh is canceled.
+ * </p>
+ * <p>
+ * If the items are a {@link VersionedList}, the snapshot is its current version,
+ * which is not copied, and the new items are published as a new version instead
+ * of being applied item by item.
+ * </p>
+ * 
+ * @param <T>
+ *            The type of the items.
+ */
+public class RefreshPipeline<T> implements OnPullToRefreshListener {
+
+    private static final String LOG_TAG = RefreshPipeline.class.getSimpleName();
+
+    /**
+     * Loads the items of a refresh.
+     * 
+     * @param <T>
+     *            The type of the items.
+     */
+    public static interface Loader<T> {
+
+        /**
+         * Loads the new items. Called on a background thread.
+         * 
+         * @param snapshot
+         *            An unmodifiable copy of the items when the refresh started. If
+         *            the items are a {@link VersionedList}, this is its current
+         *            {@link PersistentList}, from which the new items can be
+         *            derived without copying them.
+         * @param token
+         *            The token of the refresh, which tells whether it was canceled.
+         * @return The new items, which replace all the current items. Must not be
+         *         {@code null}.
+         * @throws Exception
+         *             If loading failed, which cancels the refresh.
+         */
+        public List<T> load(List<T> snapshot, RefreshToken token) throws Exception;
+    }
+
+    private final PullToRefreshListView list;
+    private final List<T> items;
+    /** The items, if they are a {@link VersionedList}. */
+    private final VersionedList<T> versionedItems;
+    private final Loader<T> loader;
+    private final ItemCallback<T> callback;
+
+    /**
+     * Creates a new {@link RefreshPipeline}. It still has to be set as the listener
+     * of the list, via
+     * {@link PullToRefreshListView#setOnPullToRefreshListener(OnPullToRefreshListener)}.
+     * 
+     * @param list
+     *            The list to refresh.
+     * @param items
+     *            The items of the adapter of the list, which are modified on the UI
+     *            thread at the end of each refresh, or to which a new version is
+     *            published if they are a {@link VersionedList}.
+     * @param loader
+     *            The loader of the new items.
+     * @param callback
+     *            The callback giving the IDs and comparing the items.
+     */
+    public RefreshPipeline(PullToRefreshListView list, List<T> items, Loader<T> loader,
+            ItemCallback<T> callback) {
+        this.list = list;
+        this.items = items;
+        this.versionedItems = items instanceof VersionedList ? (VersionedList<T>) items : null;
+        this.loader = loader;
+        this.callback = callback;
+    }
+
+    @Override
+    public void onPullToRefresh(RefreshToken token) {
+        new RefreshTask(token, snapshot(), null).execute();
+    }
+
+    private List<T> snapshot() {
+        if (versionedItems != null) {
+            return versionedItems.getVersion();
+        }
+        return Collections.unmodifiableList(new ArrayList<T>(items));
+    }
+
+    /**
+     * Returns whether the items are still the ones of the specified snapshot.
+     */
+    private boolean isSnapshotOf(List<T> snapshot) {
+        if (versionedItems != null) {
+            return versionedItems.getVersion() == snapshot;
+        }
+        if (snapshot.size() != items.size()) {
+            return false;
+        }
+        Iterator<T> it = items.iterator();
+        for (T item : snapshot) {
+            if (it.next() != item) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private class RefreshTask extends AsyncTask<Void, Void, ListDiff> {
+
+        private final RefreshToken token;
+        private final List<T> snapshot;
+        private List<T> newItems;
+        private Exception error;
+
+        /**
+         * @param newItems
+         *            The items already loaded, or {@code null} to load them.
+         */
+        public RefreshTask(RefreshToken token, List<T> snapshot, List<T> newItems) {
+            this.token = token;
+            this.snapshot = snapshot;
+            this.newItems = newItems;
+        }
+
+        @Override
+        protected ListDiff doInBackground(Void... params) {
+            try {
+                if (newItems == null && !token.isCanceled()) {
+                    newItems = loader.load(snapshot, token);
+                }
+                if (token.isCanceled()) {
+                    return null;
+                }
+                if (versionedItems != null) {
+                    // built here rather than when publishing, on the UI thread
+                    newItems = PersistentList.copyOf(newItems);
+                }
+                return ListDiff.calculate(snapshot, newItems, callback);
+            } catch (Exception e) {
+                error = e;
+                return null;
+            }
+        }
+
+        @Override
+        protected void onPostExecute(ListDiff diff) {
+            if (token.isCanceled()) {
+                return;
+            }
+            if (error != null) {
+                Log.e(LOG_TAG, "Refresh failed", error);
+                token.cancel();
+                return;
+            }
+            if (!isSnapshotOf(snapshot)) {
+                Log.d(LOG_TAG, "Items modified during the refresh, computing the diff again");
+                new RefreshTask(token, snapshot(), newItems).execute();
+                return;
+            }
+            if (versionedItems != null) {
+                versionedItems.publish((PersistentList<T>) newItems);
+            } else {
+                diff.applyTo(items, newItems);
+            }
+            list.dispatchDiff(diff);
+            token.complete();
+        }
+    }
+}
@@ -21,6 +21,11 @@ public class BaseSwipeListViewListener implements SwipeListViewListener {
     public void onDismiss(int[] reverseSortedPositions) {
     }
 
+    @Override
+    public void onDismissCommitted(int[] reverseSortedPositions, long latency,
+            long commitDuration) {
+    }
+
     @Override
     public void onChoiceChanged(int position, boolean selected) {
     }
@@ -0,0 +1,160 @@
+package com.jbion.android.lib.list.swipe;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import android.util.Log;
+import android.view.View;
+import android.view.ViewGroup;
+
+import com.nineoldandroids.animation.Animator;
+import com.nineoldandroids.animation.AnimatorFloatUpdateListener;
+import com.nineoldandroids.animation.AnimatorListenerAdapter;
+import com.nineoldandroids.animation.ValueAnimator;
+
+/**
+ * Collapses the height of several children of a list with a single animator.
+ * <p>
+ * All the heights are updated during the same frame, and the list is asked for a
+ * single layout pass per frame, instead of one {@code setLayoutParams()} (and thus
+ * one layout request) per collapsing child.
+ * </p>
+ * Rows can be added until the first frame of the collapse, so that all the rows
+ * dismissed at once share the same animation.
+ */
+class HeightCollapseAnimator {
+
+    private static final String LOG_TAG = HeightCollapseAnimator.class.getSimpleName();
+
+    /**
+     * Callback for the end of a collapse.
+     */
+    interface OnCollapseEndListener {
+        /**
+         * Called once all the rows are collapsed.
+         * 
+         * @param refCountedRows
+         *            The number of rows that were added with {@code refCounted} set.
+         */
+        void onCollapseEnd(int refCountedRows);
+    }
+
+    private final ViewGroup parent;
+    private final ValueAnimator animator;
+
+    private final List<View> views = new ArrayList<View>();
+    private int[] originalHeights = new int[8];
+    private int refCountedRows;
+
+    private boolean collapsing;
+    private int frameCount;
+    private int layoutRequestCount;
+
+    /**
+     * Creates a new collapse animator. The animation starts as soon as the first
+     * row is added.
+     * 
+     * @param parent
+     *            The list containing the rows to collapse.
+     * @param duration
+     *            The duration of the collapse, in milliseconds.
+     * @param listener
+     *            The listener to notify at the end of the collapse.
+     */
+    public HeightCollapseAnimator(ViewGroup parent, long duration,
+            final OnCollapseEndListener listener) {
+        this.parent = parent;
+        animator = ValueAnimator.ofFloat(1f, 0f).setDuration(duration);
+        animator.addFloatUpdateListener(new AnimatorFloatUpdateListener() {
+            @Override
+            public void onAnimationUpdate(ValueAnimator animation, float remaining) {
+                applyHeights(remaining);
+            }
+        });
+        animator.addListener(new AnimatorListenerAdapter() {
+            @Override
+            public void onAnimationEnd(Animator animation) {
+                Log.d(LOG_TAG, "Collapsed " + views.size() + " rows in " + frameCount
+                        + " frames with " + layoutRequestCount + " layout requests");
+                listener.onCollapseEnd(refCountedRows);
+            }
+        });
+    }
+
+    /**
+     * Returns whether rows can still be added to this collapse, which is only
+     * possible until its first frame.
+     * 
+     * @return {@code true} if {@link #add(View, boolean)} may be called.
+     */
+    public boolean canAddRows() {
+        return !collapsing;
+    }
+
+    /**
+     * Adds a row to collapse, and starts the animation if it is the first one.
+     * 
+     * @param view
+     *            The child of the list to collapse.
+     * @param refCounted
+     *            Whether this row must be counted in the {@code refCountedRows} of
+     *            the {@link OnCollapseEndListener}.
+     */
+    public void add(View view, boolean refCounted) {
+        if (collapsing) {
+            throw new IllegalStateException("cannot add rows once the collapse has begun");
+        }
+        int index = views.size();
+        if (index == originalHeights.length) {
+            int[] newHeights = new int[index * 2];
+            System.arraycopy(originalHeights, 0, newHeights, 0, index);
+            originalHeights = newHeights;
+        }
+        views.add(view);
+        originalHeights[index] = view.getHeight();
+        if (refCounted) {
+            refCountedRows++;
+        }
+        if (index == 0) {
+            animator.start();
+        }
+    }
+
+    /**
+     * Sets the height of every row to the given fraction of its original height,
+     * and requests a single layout of the list.
+     */
+    private void applyHeights(float remaining) {
+        if (remaining < 1f) {
+            collapsing = true;
+        }
+        int count = views.size();
+        for (int i = 0; i < count; i++) {
+            View view = views.get(i);
+            ViewGroup.LayoutParams lp = view.getLayoutParams();
+            lp.height = 1 + (int) (remaining * (originalHeights[i] - 1));
+            // no requestLayout() per view, the list lays out all of them at once
+            view.forceLayout();
+        }
+        if (!parent.isLayoutRequested()) {
+            parent.requestLayout();
+            layoutRequestCount++;
+        }
+        frameCount++;
+    }
+
+    /**
+     * @return The number of frames processed so far.
+     */
+    public int getFrameCount() {
+        return frameCount;
+    }
+
+    /**
+     * @return The number of layout passes requested so far, never more than one per
+     *         frame.
+     */
+    public int getLayoutRequestCount() {
+        return layoutRequestCount;
+    }
+}
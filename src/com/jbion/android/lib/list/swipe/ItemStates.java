@@ -0,0 +1,606 @@
+package com.jbion.android.lib.list.swipe;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import android.widget.ListAdapter;
+
+/**
+ * Compact store for the per-item states of a {@link SwipeListView}.
+ * <p>
+ * Each state (swiped, swiped to the right, checked) is a bit set packed in a
+ * {@code long[]}, indexed by list position. Positions that were never set read as
+ * {@code false}, so the store does not need to know the size of the list, and
+ * clearing it only costs the number of words that actually hold set bits.
+ * Population counts are maintained on each change, which makes
+ * {@link #count(int)} O(1).
+ * </p>
+ * <p>
+ * If the adapter has stable IDs, the ID of each item having a state is recorded,
+ * so that {@link #onDataSetChanged()} can move the states along with their items
+ * instead of dropping them. This costs time proportional to the number of items
+ * having a state, not to the size of the list.
+ * </p>
+ */
+final class ItemStates {
+
+    /** Whether the item is swiped (open). */
+    static final int SWIPED = 0;
+    /** Whether the item is swiped towards the right. Only meaningful if swiped. */
+    static final int SWIPED_TO_RIGHT = 1;
+    /** Whether the item is checked (selected). */
+    static final int CHECKED = 2;
+
+    private static final int STATES_COUNT = 3;
+
+    private static final int ADDRESS_BITS_PER_WORD = 6;
+    private static final int INITIAL_WORDS = 4;
+
+    private final long[][] words = new long[STATES_COUNT][];
+    /** For each state, the number of words that may contain set bits. */
+    private final int[] wordsInUse = new int[STATES_COUNT];
+    /** For each state, the number of set bits. */
+    private final int[] counts = new int[STATES_COUNT];
+
+    /** The adapter of the list, used to key the states by ID if possible. */
+    private ListAdapter adapter;
+    /** The number of items in the adapter when the states were last updated. */
+    private int itemCount;
+    /** The IDs of the items having a state, when the adapter has stable IDs. */
+    private final PositionIds ids = new PositionIds();
+    /**
+     * Whether {@link #insert(int, int)} or {@link #remove(int, int)} already
+     * accounted for the next data set change.
+     */
+    private boolean rangeChangesApplied;
+
+    ItemStates() {
+        for (int s = 0; s < STATES_COUNT; s++) {
+            words[s] = new long[INITIAL_WORDS];
+        }
+    }
+
+    private static int wordIndex(int position) {
+        return position >> ADDRESS_BITS_PER_WORD;
+    }
+
+    /**
+     * Returns the value of the specified state for the item at the specified
+     * position.
+     *
+     * @param state
+     *            One of {@link #SWIPED}, {@link #SWIPED_TO_RIGHT}, {@link #CHECKED}.
+     * @param position
+     *            The position of the item in the list.
+     * @return {@code true} if the state is set for this item.
+     */
+    boolean get(int state, int position) {
+        if (position < 0) {
+            return false;
+        }
+        int w = wordIndex(position);
+        return w < wordsInUse[state] && (words[state][w] & (1L << position)) != 0;
+    }
+
+    /**
+     * Sets the value of the specified state for the item at the specified position.
+     *
+     * @param state
+     *            One of {@link #SWIPED}, {@link #SWIPED_TO_RIGHT}, {@link #CHECKED}.
+     * @param position
+     *            The position of the item in the list.
+     * @param value
+     *            The new value of the state.
+     */
+    void set(int state, int position, boolean value) {
+        if (position < 0) {
+            return;
+        }
+        int w = wordIndex(position);
+        long mask = 1L << position;
+        if (value) {
+            ensureCapacity(state, w + 1);
+            if ((words[state][w] & mask) == 0) {
+                words[state][w] |= mask;
+                counts[state]++;
+            }
+            if (isKeyedById() && position < itemCount && ids.indexOfKey(position) < 0) {
+                ids.put(position, adapter.getItemId(position));
+            }
+        } else if (w < wordsInUse[state] && (words[state][w] & mask) != 0) {
+            words[state][w] &= ~mask;
+            counts[state]--;
+            recalculateWordsInUse(state);
+            if (isKeyedById() && !hasState(position)) {
+                ids.remove(position);
+            }
+        }
+    }
+
+    /**
+     * Returns whether the item at the specified position is swiped or checked.
+     */
+    private boolean hasState(int position) {
+        return get(SWIPED, position) || get(CHECKED, position);
+    }
+
+    /**
+     * Returns the number of items for which the specified state is set.
+     *
+     * @param state
+     *            One of {@link #SWIPED}, {@link #SWIPED_TO_RIGHT}, {@link #CHECKED}.
+     * @return the number of items having this state.
+     */
+    int count(int state) {
+        return counts[state];
+    }
+
+    /**
+     * Returns the number of items for which the specified state is set, and the
+     * {@code filter} state has the value {@code filterValue}.
+     *
+     * @param state
+     *            The state to count.
+     * @param filter
+     *            The state to filter on.
+     * @param filterValue
+     *            The value the {@code filter} state must have.
+     * @return the number of matching items.
+     */
+    int count(int state, int filter, boolean filterValue) {
+        long[] stateWords = words[state];
+        long[] filterWords = words[filter];
+        int filterInUse = wordsInUse[filter];
+        int count = 0;
+        for (int w = 0; w < wordsInUse[state]; w++) {
+            long f = w < filterInUse ? filterWords[w] : 0;
+            count += Long.bitCount(stateWords[w] & (filterValue ? f : ~f));
+        }
+        return count;
+    }
+
+    /**
+     * Returns the first position greater than or equal to {@code from} for which the
+     * specified state is set.
+     *
+     * @param state
+     *            One of {@link #SWIPED}, {@link #SWIPED_TO_RIGHT}, {@link #CHECKED}.
+     * @param from
+     *            The position to start searching at (inclusive).
+     * @return the position of the next item having this state, or -1 if there is no
+     *         such item.
+     */
+    int nextSetBit(int state, int from) {
+        if (from < 0) {
+            from = 0;
+        }
+        int w = wordIndex(from);
+        int inUse = wordsInUse[state];
+        if (w >= inUse) {
+            return -1;
+        }
+        long[] stateWords = words[state];
+        long word = stateWords[w] & (-1L << from);
+        while (true) {
+            if (word != 0) {
+                return (w << ADDRESS_BITS_PER_WORD) + Long.numberOfTrailingZeros(word);
+            }
+            if (++w == inUse) {
+                return -1;
+            }
+            word = stateWords[w];
+        }
+    }
+
+    /**
+     * Returns the positions of all the items for which the specified state is set,
+     * in ascending order.
+     *
+     * @param state
+     *            One of {@link #SWIPED}, {@link #SWIPED_TO_RIGHT}, {@link #CHECKED}.
+     * @return a list of the matching positions.
+     */
+    List<Integer> positions(int state) {
+        List<Integer> list = new ArrayList<Integer>(counts[state]);
+        for (int i = nextSetBit(state, 0); i >= 0; i = nextSetBit(state, i + 1)) {
+            list.add(i);
+        }
+        return list;
+    }
+
+    /**
+     * Returns the positions of all the items for which the specified state is set,
+     * and the {@code filter} state has the value {@code filterValue}, in ascending
+     * order.
+     *
+     * @param state
+     *            The state to look for.
+     * @param filter
+     *            The state to filter on.
+     * @param filterValue
+     *            The value the {@code filter} state must have.
+     * @return a list of the matching positions.
+     */
+    List<Integer> positions(int state, int filter, boolean filterValue) {
+        List<Integer> list = new ArrayList<Integer>();
+        for (int i = nextSetBit(state, 0); i >= 0; i = nextSetBit(state, i + 1)) {
+            if (get(filter, i) == filterValue) {
+                list.add(i);
+            }
+        }
+        return list;
+    }
+
+    /**
+     * Unsets the specified state for all items.
+     *
+     * @param state
+     *            One of {@link #SWIPED}, {@link #SWIPED_TO_RIGHT}, {@link #CHECKED}.
+     */
+    void clear(int state) {
+        clearBits(state);
+        for (int i = ids.size() - 1; i >= 0; i--) {
+            if (!hasState(ids.keyAt(i))) {
+                ids.removeAt(i);
+            }
+        }
+    }
+
+    /**
+     * Unsets all states for all items.
+     */
+    void clear() {
+        for (int s = 0; s < STATES_COUNT; s++) {
+            clearBits(s);
+        }
+        ids.clear();
+    }
+
+    private void clearBits(int state) {
+        Arrays.fill(words[state], 0, wordsInUse[state], 0L);
+        wordsInUse[state] = 0;
+        counts[state] = 0;
+    }
+
+    /**
+     * Sets the adapter whose items these states belong to. This clears all states.
+     *
+     * @param adapter
+     *            The adapter of the list, as returned by
+     *            {@link SwipeListView#getAdapter()}.
+     */
+    void setAdapter(ListAdapter adapter) {
+        this.adapter = adapter;
+        this.itemCount = adapter == null ? 0 : adapter.getCount();
+        this.rangeChangesApplied = false;
+        clear();
+    }
+
+    private boolean isKeyedById() {
+        return adapter != null && adapter.hasStableIds();
+    }
+
+    /**
+     * Updates the states after the adapter's data changed. If the adapter has stable
+     * IDs, each state follows its item to its new position, and is dropped if the
+     * item was removed. Otherwise, all states are cleared.
+     */
+    void onDataSetChanged() {
+        int newCount = adapter == null ? 0 : adapter.getCount();
+        if (rangeChangesApplied && newCount == itemCount) {
+            // this change was already reported via insert()/remove()
+            rangeChangesApplied = false;
+            return;
+        }
+        rangeChangesApplied = false;
+        int delta = newCount - itemCount;
+        itemCount = newCount;
+        int size = ids.size();
+        if (!isKeyedById() || size == 0) {
+            clear();
+            return;
+        }
+        // find the new positions, starting with the cheap guesses
+        long[] itemIds = new long[size];
+        int[] newPositions = new int[size];
+        int[] flags = new int[size];
+        Map<Long, Integer> positionsById = null;
+        for (int i = 0; i < size; i++) {
+            int position = ids.keyAt(i);
+            long id = ids.valueAt(i);
+            itemIds[i] = id;
+            for (int s = 0; s < STATES_COUNT; s++) {
+                if (get(s, position)) {
+                    flags[i] |= 1 << s;
+                }
+            }
+            if (hasIdAt(id, position, newCount)) {
+                // untouched position (e.g. items added at the end)
+                newPositions[i] = position;
+            } else if (hasIdAt(id, position + delta, newCount)) {
+                // shifted position (e.g. items added at the top)
+                newPositions[i] = position + delta;
+            } else {
+                // arbitrary change, index all IDs once
+                if (positionsById == null) {
+                    positionsById = indexIds(newCount);
+                }
+                Integer newPosition = positionsById.get(id);
+                newPositions[i] = newPosition == null ? -1 : newPosition;
+            }
+        }
+        // move the states
+        clear();
+        for (int i = 0; i < size; i++) {
+            int position = newPositions[i];
+            if (position < 0) {
+                continue; // item removed
+            }
+            for (int s = 0; s < STATES_COUNT; s++) {
+                if ((flags[i] & (1 << s)) != 0) {
+                    setBit(s, position);
+                }
+            }
+            ids.put(position, itemIds[i]);
+        }
+    }
+
+    /**
+     * Shifts the states to account for items inserted in the adapter. The states of
+     * the items after the inserted range are moved down.
+     *
+     * @param position
+     *            The position of the first inserted item.
+     * @param count
+     *            The number of inserted items.
+     */
+    void insert(int position, int count) {
+        for (int s = 0; s < STATES_COUNT; s++) {
+            shiftBits(s, position, count);
+        }
+        ids.shiftKeys(position, count);
+        itemCount += count;
+        rangeChangesApplied = true;
+    }
+
+    /**
+     * Shifts the states to account for items removed from the adapter. The states of
+     * the removed items are dropped, and the ones of the items after the removed
+     * range are moved up.
+     *
+     * @param position
+     *            The position of the first removed item.
+     * @param count
+     *            The number of removed items.
+     */
+    void remove(int position, int count) {
+        int end = position + count;
+        for (int s = 0; s < STATES_COUNT; s++) {
+            for (int i = nextSetBit(s, position); i >= 0 && i < end; i = nextSetBit(s, i + 1)) {
+                clearBit(s, i);
+            }
+            shiftBits(s, end, -count);
+        }
+        ids.removeKeys(position, end);
+        ids.shiftKeys(end, -count);
+        itemCount -= count;
+        rangeChangesApplied = true;
+    }
+
+    /**
+     * Moves the states of the item at {@code from} to {@code to}, and shifts the
+     * states of the items in between, as if the item was removed from the adapter
+     * and inserted again.
+     *
+     * @param from
+     *            The former position of the item.
+     * @param to
+     *            The new position of the item.
+     */
+    void move(int from, int to) {
+        if (from == to) {
+            return;
+        }
+        int flags = 0;
+        for (int s = 0; s < STATES_COUNT; s++) {
+            if (get(s, from)) {
+                flags |= 1 << s;
+            }
+        }
+        int idIndex = ids.indexOfKey(from);
+        long id = idIndex >= 0 ? ids.valueAt(idIndex) : 0;
+        remove(from, 1);
+        insert(to, 1);
+        for (int s = 0; s < STATES_COUNT; s++) {
+            if ((flags & (1 << s)) != 0) {
+                setBit(s, to);
+            }
+        }
+        if (idIndex >= 0) {
+            ids.put(to, id);
+        }
+    }
+
+    /**
+     * Moves all the bits of the specified state at or after {@code from} by
+     * {@code delta} positions. This costs time proportional to the number of moved
+     * bits.
+     */
+    private void shiftBits(int state, int from, int delta) {
+        if (delta == 0) {
+            return;
+        }
+        int[] moved = new int[counts[state]];
+        int n = 0;
+        for (int i = nextSetBit(state, from); i >= 0; i = nextSetBit(state, i + 1)) {
+            moved[n++] = i;
+        }
+        for (int i = 0; i < n; i++) {
+            clearBit(state, moved[i]);
+        }
+        for (int i = 0; i < n; i++) {
+            setBit(state, moved[i] + delta);
+        }
+    }
+
+    private boolean hasIdAt(long id, int position, int count) {
+        return position >= 0 && position < count && adapter.getItemId(position) == id;
+    }
+
+    private Map<Long, Integer> indexIds(int count) {
+        Map<Long, Integer> positionsById = new HashMap<Long, Integer>(2 * count);
+        for (int position = 0; position < count; position++) {
+            positionsById.put(adapter.getItemId(position), position);
+        }
+        return positionsById;
+    }
+
+    private void clearBit(int state, int position) {
+        int w = wordIndex(position);
+        long mask = 1L << position;
+        if (w < wordsInUse[state] && (words[state][w] & mask) != 0) {
+            words[state][w] &= ~mask;
+            counts[state]--;
+            recalculateWordsInUse(state);
+        }
+    }
+
+    private void setBit(int state, int position) {
+        int w = wordIndex(position);
+        long mask = 1L << position;
+        ensureCapacity(state, w + 1);
+        if ((words[state][w] & mask) == 0) {
+            words[state][w] |= mask;
+            counts[state]++;
+        }
+    }
+
+    private void ensureCapacity(int state, int wordsRequired) {
+        if (words[state].length < wordsRequired) {
+            int newLength = Math.max(2 * words[state].length, wordsRequired);
+            long[] newWords = new long[newLength];
+            System.arraycopy(words[state], 0, newWords, 0, wordsInUse[state]);
+            words[state] = newWords;
+        }
+        if (wordsInUse[state] < wordsRequired) {
+            wordsInUse[state] = wordsRequired;
+        }
+    }
+
+    private void recalculateWordsInUse(int state) {
+        int w = wordsInUse[state] - 1;
+        while (w >= 0 && words[state][w] == 0) {
+            w--;
+        }
+        wordsInUse[state] = w + 1;
+    }
+
+    /**
+     * Map of int positions to long IDs, stored in sorted primitive arrays. Lookups
+     * are binary searches, and appending in increasing position order is O(1).
+     */
+    private static class PositionIds {
+        private int[] keys = new int[INITIAL_WORDS];
+        private long[] values = new long[INITIAL_WORDS];
+        private int size;
+
+        int size() {
+            return size;
+        }
+
+        int keyAt(int index) {
+            return keys[index];
+        }
+
+        long valueAt(int index) {
+            return values[index];
+        }
+
+        int indexOfKey(int key) {
+            int lo = 0;
+            int hi = size - 1;
+            while (lo <= hi) {
+                int mid = (lo + hi) >>> 1;
+                int midKey = keys[mid];
+                if (midKey < key) {
+                    lo = mid + 1;
+                } else if (midKey > key) {
+                    hi = mid - 1;
+                } else {
+                    return mid;
+                }
+            }
+            return ~lo;
+        }
+
+        void put(int key, long value) {
+            int i = indexOfKey(key);
+            if (i >= 0) {
+                values[i] = value;
+                return;
+            }
+            i = ~i;
+            if (size == keys.length) {
+                int[] newKeys = new int[2 * size];
+                long[] newValues = new long[2 * size];
+                System.arraycopy(keys, 0, newKeys, 0, size);
+                System.arraycopy(values, 0, newValues, 0, size);
+                keys = newKeys;
+                values = newValues;
+            }
+            if (i < size) {
+                System.arraycopy(keys, i, keys, i + 1, size - i);
+                System.arraycopy(values, i, values, i + 1, size - i);
+            }
+            keys[i] = key;
+            values[i] = value;
+            size++;
+        }
+
+        void remove(int key) {
+            int i = indexOfKey(key);
+            if (i >= 0) {
+                removeAt(i);
+            }
+        }
+
+        void removeAt(int index) {
+            System.arraycopy(keys, index + 1, keys, index, size - index - 1);
+            System.arraycopy(values, index + 1, values, index, size - index - 1);
+            size--;
+        }
+
+        void clear() {
+            size = 0;
+        }
+
+        /**
+         * Adds {@code delta} to all keys greater than or equal to {@code from}. The
+         * caller must make sure this does not make keys collide.
+         */
+        void shiftKeys(int from, int delta) {
+            int i = indexOfKey(from);
+            for (i = i >= 0 ? i : ~i; i < size; i++) {
+                keys[i] += delta;
+            }
+        }
+
+        /**
+         * Removes all keys in the range [from, to).
+         */
+        void removeKeys(int from, int to) {
+            int start = indexOfKey(from);
+            start = start >= 0 ? start : ~start;
+            int end = indexOfKey(to);
+            end = end >= 0 ? end : ~end;
+            if (end > start) {
+                System.arraycopy(keys, end, keys, start, size - end);
+                System.arraycopy(values, end, values, start, size - end);
+                size -= end - start;
+            }
+        }
+    }
+}
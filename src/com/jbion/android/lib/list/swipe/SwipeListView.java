@@ -47,6 +47,29 @@ public class SwipeListView extends PullToLoadListView {
     // TODO notify this listener in our private scroll listener
     private OnScrollListener userScrollListener;
 
+    /**
+     * The adapter set by the using class, without header/footer wrapping.
+     */
+    private ListAdapter userAdapter;
+    /**
+     * Keeps the swipe states in sync with the adapter's data. If the adapter has
+     * stable IDs, the states follow their items, otherwise they are reset.
+     */
+    private final DataSetObserver dataSetObserver = new DataSetObserver() {
+        @Override
+        public void onChanged() {
+            super.onChanged();
+            onListChanged();
+            touchListener.onDataSetChanged();
+        }
+
+        @Override
+        public void onInvalidated() {
+            super.onInvalidated();
+            touchListener.resetItems();
+        }
+    };
+
     private boolean superTouchEventsEnabled = true;
 
     private boolean swipeEnabled;
@@ -171,6 +194,29 @@ public class SwipeListView extends PullToLoadListView {
         return superTouchEventsEnabled && super.onTouchEvent(ev) || res;
     }
 
+    @Override
+    protected void layoutChildren() {
+        super.layoutChildren();
+        if (touchListener != null) {
+            touchListener.onLayoutChildren();
+        }
+    }
+
+    @Override
+    protected void onItemRangeInserted(int position, int count) {
+        touchListener.onItemRangeInserted(position, count);
+    }
+
+    @Override
+    protected void onItemRangeRemoved(int position, int count) {
+        touchListener.onItemRangeRemoved(position, count);
+    }
+
+    @Override
+    protected void onItemMoved(int fromPosition, int toPosition) {
+        touchListener.onItemMoved(fromPosition, toPosition);
+    }
+
     @Override
     protected void onHeaderPullStateChanged(boolean pullingOnHeader, State pullState) {
         if (touchListener != null) {
@@ -257,15 +303,8 @@ public class SwipeListView extends PullToLoadListView {
      *            Position that you want open
      */
     public void dismiss(int position) {
-        int height = touchListener.dismiss(position);
-        if (height > 0) {
-            touchListener.handlerPendingDismisses(height);
-        } else {
-            int[] dismissPositions = new int[1];
-            dismissPositions[0] = position;
-            onDismiss(dismissPositions);
-            touchListener.resetPendingDismisses();
-        }
+        touchListener.dismiss(position);
+        touchListener.commitPendingDismisses();
     }
 
     /**
@@ -273,22 +312,10 @@ public class SwipeListView extends PullToLoadListView {
      */
     public void dismissSelected() {
         List<Integer> list = touchListener.getCheckedPositions();
-        int[] dismissPositions = new int[list.size()];
-        int height = 0;
         for (int i = 0; i < list.size(); i++) {
-            int position = list.get(i);
-            dismissPositions[i] = position;
-            int auxHeight = touchListener.dismiss(position);
-            if (auxHeight > 0) {
-                height = auxHeight;
-            }
-        }
-        if (height > 0) {
-            touchListener.handlerPendingDismisses(height);
-        } else {
-            onDismiss(dismissPositions);
-            touchListener.resetPendingDismisses();
+            touchListener.dismiss(list.get(i));
         }
+        touchListener.commitPendingDismisses();
         touchListener.resetOldActions();
     }
 
@@ -321,17 +348,14 @@ public class SwipeListView extends PullToLoadListView {
      */
     @Override
     public void setAdapter(ListAdapter adapter) {
+        if (userAdapter != null) {
+            userAdapter.unregisterDataSetObserver(dataSetObserver);
+        }
         super.setAdapter(adapter);
+        userAdapter = adapter;
         touchListener.resetItems();
         if (adapter != null) {
-            adapter.registerDataSetObserver(new DataSetObserver() {
-                @Override
-                public void onChanged() {
-                    super.onChanged();
-                    onListChanged();
-                    touchListener.resetItems();
-                }
-            });
+            adapter.registerDataSetObserver(dataSetObserver);
         }
     }
 
@@ -488,6 +512,25 @@ public class SwipeListView extends PullToLoadListView {
         }
     }
 
+    /**
+     * Notifies onDismissCommitted
+     * 
+     * @param reverseSortedPositions
+     *            All dismissed positions
+     * @param latency
+     *            Time between the end of the dismiss animations and the call to
+     *            onDismiss, in milliseconds
+     * @param commitDuration
+     *            Time spent in onDismiss, in milliseconds
+     */
+    protected void onDismissCommitted(int[] reverseSortedPositions, long latency,
+            long commitDuration) {
+        if (swipeListViewListener != null) {
+            swipeListViewListener.onDismissCommitted(reverseSortedPositions, latency,
+                    commitDuration);
+        }
+    }
+
     /**
      * Notifies onOpened
      * 
@@ -37,6 +37,14 @@ public interface SwipeListViewListener {
      */
     void onDismiss(int[] reverseSortedPositions);
 
+    /**
+     * Called right after onDismiss, to measure how long committing a dismiss takes
+     * @param reverseSortedPositions Items dismissed
+     * @param latency Time between the end of the dismiss animations and the call to onDismiss, in milliseconds
+     * @param commitDuration Time spent in onDismiss, in milliseconds
+     */
+    void onDismissCommitted(int[] reverseSortedPositions, long latency, long commitDuration);
+
     /**
      * Called when user choice item
      * @param position position that choice
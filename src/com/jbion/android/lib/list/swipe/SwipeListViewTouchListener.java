@@ -2,13 +2,13 @@ package com.jbion.android.lib.list.swipe;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
 
 import android.annotation.TargetApi;
 import android.content.Context;
-import android.graphics.Rect;
 import android.os.Build;
-import android.os.Handler;
+import android.os.SystemClock;
 import android.support.v4.view.MotionEventCompat;
 import android.util.Log;
 import android.view.MotionEvent;
@@ -25,10 +25,9 @@ import android.widget.ListAdapter;
 //import android.animation.AnimatorListenerAdapter;
 //import android.animation.ValueAnimator;
 //import android.animation.ValueAnimator.AnimatorUpdateListener;
+import com.jbion.android.lib.list.FrameCoalescer;
 import com.nineoldandroids.animation.Animator;
 import com.nineoldandroids.animation.AnimatorListenerAdapter;
-import com.nineoldandroids.animation.AnimatorUpdateListener;
-import com.nineoldandroids.animation.ValueAnimator;
 import com.nineoldandroids.view.ViewHelper;
 import com.nineoldandroids.view.ViewPropertyAnimator;
 
@@ -67,11 +66,26 @@ class SwipeListViewTouchListener implements View.OnTouchListener {
 
     private List<PendingDismissData> pendingDismisses = new ArrayList<PendingDismissData>();
     private int dismissAnimationRefCount = 0;
+    /** The collapse the next dismissed rows join, if it has not begun yet. */
+    private HeightCollapseAnimator collapseAnimator;
+    /** Time at which the last dismiss animation ended. */
+    private long dismissEndTime;
+    /**
+     * Commits the pending dismisses once the dismiss animations are over. Posted
+     * rather than run from the animation callback, and reused for every dismiss.
+     */
+    private final Runnable commitDismissesRunnable = new Runnable() {
+        @Override
+        public void run() {
+            // some rows may have been dismissed since this was posted
+            if (dismissAnimationRefCount == 0) {
+                removePendingDismisses();
+            }
+        }
+    };
 
     private boolean paused;
-    private List<Boolean> swiped = new ArrayList<Boolean>();
-    private List<Boolean> swipedToRight = new ArrayList<Boolean>();
-    private List<Boolean> checked = new ArrayList<Boolean>();
+    private final ItemStates states = new ItemStates();
 
     private final Item movingItem = new Item();
     private final Motion currentMotion = new Motion();
@@ -80,7 +94,12 @@ class SwipeListViewTouchListener implements View.OnTouchListener {
     private int currentActionLeft;
     private int currentActionRight;
 
-    private final Rect rect = new Rect();
+    private final VisibleItemsIndex itemsIndex;
+
+    /** The position the moving item was dragged to by the last move. */
+    private float pendingTargetX;
+    /** Applies {@link #pendingTargetX} once per frame. */
+    private final FrameCoalescer moveCoalescer;
 
     /**
      * Constructor
@@ -102,6 +121,15 @@ class SwipeListViewTouchListener implements View.OnTouchListener {
         currentActionLeft = opts.swipeActionLeft;
         currentActionRight = opts.swipeActionRight;
         currentAction = SwipeOptions.ACTION_NONE;
+        itemsIndex = new VisibleItemsIndex(listView, options);
+        moveCoalescer = new FrameCoalescer(listView, new Runnable() {
+            @Override
+            public void run() {
+                if (movingItem.position != AdapterView.INVALID_POSITION) {
+                    moveMovingItemToPosition(pendingTargetX, currentAction);
+                }
+            }
+        });
     }
 
     /**
@@ -126,19 +154,122 @@ class SwipeListViewTouchListener implements View.OnTouchListener {
     }
 
     /**
-     * Resets the items' state. Call this method when the adapter is modified.
+     * Updates the index of the visible items. Call this method after each layout
+     * pass of the list.
+     */
+    public void onLayoutChildren() {
+        itemsIndex.rebuild();
+    }
+
+    /**
+     * Returns the front view of the specified item view, without searching the view
+     * tree if it was already found once.
+     */
+    private View frontViewOf(View itemView) {
+        return itemsIndex.getItemViews(itemView).frontView;
+    }
+
+    /**
+     * Resets the items' state. Call this method when the adapter is replaced.
      */
     public void resetItems() {
-        if (listView.getAdapter() != null) {
-            swiped.clear();
-            swipedToRight.clear();
-            checked.clear();
-            for (int i = 0; i <= listView.getAdapter().getCount(); i++) {
-                swiped.add(false);
-                swipedToRight.add(false);
-                checked.add(false);
+        states.setAdapter(listView.getAdapter());
+    }
+
+    /**
+     * Updates the items' state after a change in the adapter's data. If the adapter
+     * has stable IDs, the states of the remaining items are kept, otherwise they are
+     * reset.
+     */
+    public void onDataSetChanged() {
+        states.onDataSetChanged();
+    }
+
+    /**
+     * Shifts the items' state to account for items inserted in the adapter.
+     * 
+     * @param position
+     *            The list position of the first inserted item.
+     * @param count
+     *            The number of inserted items.
+     */
+    public void onItemRangeInserted(int position, int count) {
+        states.insert(position, count);
+        for (PendingDismissData pendingDismiss : pendingDismisses) {
+            if (pendingDismiss.position >= position) {
+                pendingDismiss.position += count;
+            }
+        }
+        if (movingItem.position >= position) {
+            movingItem.position += count;
+        }
+    }
+
+    /**
+     * Shifts the items' state to account for items removed from the adapter.
+     * 
+     * @param position
+     *            The list position of the first removed item.
+     * @param count
+     *            The number of removed items.
+     */
+    public void onItemRangeRemoved(int position, int count) {
+        states.remove(position, count);
+        int end = position + count;
+        Iterator<PendingDismissData> it = pendingDismisses.iterator();
+        while (it.hasNext()) {
+            PendingDismissData pendingDismiss = it.next();
+            if (pendingDismiss.position >= end) {
+                pendingDismiss.position -= count;
+            } else if (pendingDismiss.position >= position) {
+                // already removed by the adapter
+                it.remove();
             }
         }
+        if (movingItem.position >= end) {
+            movingItem.position -= count;
+        } else if (movingItem.position >= position) {
+            cancelMotionAndReset();
+        }
+    }
+
+    /**
+     * Moves the item's state to account for an item moved in the adapter.
+     * 
+     * @param fromPosition
+     *            The former list position of the item.
+     * @param toPosition
+     *            The new list position of the item.
+     */
+    public void onItemMoved(int fromPosition, int toPosition) {
+        states.move(fromPosition, toPosition);
+        for (PendingDismissData pendingDismiss : pendingDismisses) {
+            pendingDismiss.position = movedPosition(pendingDismiss.position, fromPosition,
+                    toPosition);
+        }
+        if (movingItem.position == fromPosition) {
+            // the view of the moving item will be rebound elsewhere
+            cancelMotionAndReset();
+        } else {
+            movingItem.position = movedPosition(movingItem.position, fromPosition, toPosition);
+        }
+    }
+
+    /**
+     * Returns the new position of the item at the specified position, after the
+     * item at {@code fromPosition} was moved to {@code toPosition}.
+     */
+    private static int movedPosition(int position, int fromPosition, int toPosition) {
+        if (position == fromPosition) {
+            return toPosition;
+        }
+        if (position > fromPosition) {
+            position--;
+        }
+        if (position >= toPosition) {
+            position++;
+        }
+        return position;
     }
 
     private void workaroundClick(View frontView, final int position) {
@@ -172,12 +303,12 @@ class SwipeListViewTouchListener implements View.OnTouchListener {
      * Draw cell for display if item is selected or not
      * 
      * @param convertView
-     *            the front view to reload
+     *            the item view to reload
      * @param position
      *            position in list
      */
     protected void initViewSwipeState(View convertView, final int position) {
-        View frontView = convertView.findViewById(opts.frontViewId);
+        View frontView = itemsIndex.getItemViews(convertView).frontView;
         if (isChecked(position)) {
             if (opts.drawableChecked > 0)
                 frontView.setBackgroundResource(opts.drawableChecked);
@@ -192,7 +323,7 @@ class SwipeListViewTouchListener implements View.OnTouchListener {
             frontView.setOnLongClickListener(new View.OnLongClickListener() {
                 @Override
                 public boolean onLongClick(View v) {
-                    if (swiped.get(position)) {
+                    if (isSwiped(position)) {
                         unswipe(position);
                     } else {
                         if (!opts.multipleSelectEnabled) {
@@ -207,26 +338,28 @@ class SwipeListViewTouchListener implements View.OnTouchListener {
         } else {
             workaroundLongClick(frontView, position);
         }
-        if (swiped.get(position)) {
-            setTranslationX(frontView, getSwipedOffset(swipedToRight.get(position)));
+        if (isSwiped(position)) {
+            setTranslationX(frontView, getSwipedOffset(isSwipedToRight(position)));
         } else {
             setTranslationX(frontView, 0);
         }
     }
 
+    private boolean isSwiped(int position) {
+        return states.get(ItemStates.SWIPED, position);
+    }
+
+    private boolean isSwipedToRight(int position) {
+        return states.get(ItemStates.SWIPED_TO_RIGHT, position);
+    }
+
     /**
      * Returns the number of swiped items.
      * 
      * @return the number of swiped items
      */
     protected int getCountSwiped() {
-        int count = 0;
-        for (int i = 0; i < swiped.size(); i++) {
-            if (swiped.get(i)) {
-                count++;
-            }
-        }
-        return count;
+        return states.count(ItemStates.SWIPED);
     }
 
     /**
@@ -239,13 +372,7 @@ class SwipeListViewTouchListener implements View.OnTouchListener {
      * @return the number of swiped items
      */
     protected int getCountSwiped(boolean toRight) {
-        int count = 0;
-        for (int i = 0; i < swiped.size(); i++) {
-            if (swiped.get(i) && (swipedToRight.get(i) == toRight)) {
-                count++;
-            }
-        }
-        return count;
+        return states.count(ItemStates.SWIPED, ItemStates.SWIPED_TO_RIGHT, toRight);
     }
 
     /**
@@ -254,13 +381,7 @@ class SwipeListViewTouchListener implements View.OnTouchListener {
      * @return a list of the swiped positions
      */
     protected List<Integer> getSwipedPositions() {
-        List<Integer> list = new ArrayList<Integer>();
-        for (int i = 0; i < swiped.size(); i++) {
-            if (swiped.get(i)) {
-                list.add(i);
-            }
-        }
-        return list;
+        return states.positions(ItemStates.SWIPED);
     }
 
     /**
@@ -273,13 +394,7 @@ class SwipeListViewTouchListener implements View.OnTouchListener {
      * @return a list of the swiped positions
      */
     protected List<Integer> getSwipedPositions(boolean toRight) {
-        List<Integer> list = new ArrayList<Integer>();
-        for (int i = 0; i < swiped.size(); i++) {
-            if (swiped.get(i) && (swipedToRight.get(i) == toRight)) {
-                list.add(i);
-            }
-        }
-        return list;
+        return states.positions(ItemStates.SWIPED, ItemStates.SWIPED_TO_RIGHT, toRight);
     }
 
     /**
@@ -293,10 +408,9 @@ class SwipeListViewTouchListener implements View.OnTouchListener {
         int last = listView.getLastVisiblePosition();
         if (position >= first && position <= last) {
             // the affected view is visible
-            openAnimate(listView.getChildAt(position - first).findViewById(opts.frontViewId),
-                    position);
+            openAnimate(frontViewOf(listView.getChildAt(position - first)), position);
         } else {
-            swiped.set(position, true);
+            states.set(ItemStates.SWIPED, position, true);
         }
     }
 
@@ -311,10 +425,9 @@ class SwipeListViewTouchListener implements View.OnTouchListener {
         int last = listView.getLastVisiblePosition();
         if (position >= first && position <= last) {
             // the affected view is visible
-            closeAnimate(listView.getChildAt(position - first).findViewById(opts.frontViewId),
-                    position);
+            closeAnimate(frontViewOf(listView.getChildAt(position - first)), position);
         } else {
-            swiped.set(position, false);
+            states.set(ItemStates.SWIPED, position, false);
         }
     }
 
@@ -326,24 +439,27 @@ class SwipeListViewTouchListener implements View.OnTouchListener {
         int last = listView.getLastVisiblePosition();
         // animate all visible closing items
         for (int i = first; i <= last; i++) {
-            closeAnimate(listView.getChildAt(i - first).findViewById(opts.frontViewId), i);
+            closeAnimate(frontViewOf(listView.getChildAt(i - first)), i);
         }
         // close all items
-        for (int i = 0; i < swiped.size(); i++) {
-            swiped.set(i, false);
-        }
+        states.clear(ItemStates.SWIPED);
     }
 
     /**
-     * Unselected choice state in item
+     * Dismisses the specified item, with an animation if it is visible. The dismiss
+     * is only committed by {@link #commitPendingDismisses()}.
+     * 
+     * @param position
+     *            The position of the item to dismiss.
+     * @return The height of the dismissed view, or 0 if it is not visible.
      */
     protected int dismiss(int position) {
         int start = listView.getFirstVisiblePosition();
         int end = listView.getLastVisiblePosition();
-        View view = listView.getChildAt(position - start);
-        ++dismissAnimationRefCount;
         if (position >= start && position <= end) {
-            performDismiss(view, position, false);
+            View view = listView.getChildAt(position - start);
+            ++dismissAnimationRefCount;
+            performDismiss(view, position, true);
             return view.getHeight();
         } else {
             pendingDismisses.add(new PendingDismissData(position, null));
@@ -362,51 +478,46 @@ class SwipeListViewTouchListener implements View.OnTouchListener {
     @TargetApi(Build.VERSION_CODES.HONEYCOMB)
     protected void performDismiss(final View dismissView, final int dismissPosition,
             boolean doPendingDismiss) {
-        final ViewGroup.LayoutParams lp = dismissView.getLayoutParams();
-        final int originalHeight = dismissView.getHeight();
-
-        ValueAnimator animator = ValueAnimator.ofInt(originalHeight, 1).setDuration(
-                opts.animationTime);
-
-        if (doPendingDismiss) {
-            animator.addListener(new AnimatorListenerAdapter() {
-                @Override
-                public void onAnimationEnd(Animator animation) {
-                    --dismissAnimationRefCount;
-                    if (dismissAnimationRefCount == 0) {
-                        removePendingDismisses(originalHeight);
-                    }
-                }
-            });
+        // all the rows dismissed before the next frame collapse together
+        if (collapseAnimator == null || !collapseAnimator.canAddRows()) {
+            collapseAnimator = new HeightCollapseAnimator(listView, opts.animationTime,
+                    new HeightCollapseAnimator.OnCollapseEndListener() {
+                        @Override
+                        public void onCollapseEnd(int refCountedRows) {
+                            if (refCountedRows == 0) {
+                                return;
+                            }
+                            dismissAnimationRefCount -= refCountedRows;
+                            if (dismissAnimationRefCount == 0) {
+                                dismissEndTime = SystemClock.uptimeMillis();
+                                listView.removeCallbacks(commitDismissesRunnable);
+                                listView.post(commitDismissesRunnable);
+                            }
+                        }
+                    });
         }
-
-        animator.addUpdateListener(new AnimatorUpdateListener() {
-            @Override
-            public void onAnimationUpdate(ValueAnimator valueAnimator) {
-                lp.height = (Integer) valueAnimator.getAnimatedValue();
-                dismissView.setLayoutParams(lp);
-            }
-        });
-
-        pendingDismisses.add(new PendingDismissData(dismissPosition, dismissView));
-        animator.start();
+        int originalHeight = dismissView.getHeight();
+        collapseAnimator.add(dismissView, doPendingDismiss);
+        pendingDismisses.add(new PendingDismissData(dismissPosition, dismissView,
+                originalHeight));
     }
 
     protected void resetPendingDismisses() {
         pendingDismisses.clear();
     }
 
-    protected void handlerPendingDismisses(final int originalHeight) {
-        Handler handler = new Handler();
-        handler.postDelayed(new Runnable() {
-            @Override
-            public void run() {
-                removePendingDismisses(originalHeight);
-            }
-        }, opts.animationTime + 100);
+    /**
+     * Commits the pending dismisses right away if no dismiss animation is running,
+     * or as soon as the last one ends otherwise.
+     */
+    protected void commitPendingDismisses() {
+        if (dismissAnimationRefCount == 0 && !pendingDismisses.isEmpty()) {
+            dismissEndTime = SystemClock.uptimeMillis();
+            removePendingDismisses();
+        }
     }
 
-    private void removePendingDismisses(int originalHeight) {
+    private void removePendingDismisses() {
         // No active animations, process all pending dismisses.
         // Sort by descending position
         Collections.sort(pendingDismisses);
@@ -415,7 +526,11 @@ class SwipeListViewTouchListener implements View.OnTouchListener {
         for (int i = pendingDismisses.size() - 1; i >= 0; i--) {
             dismissPositions[i] = pendingDismisses.get(i).position;
         }
+        long commitStart = SystemClock.uptimeMillis();
         listView.onDismiss(dismissPositions);
+        long commitEnd = SystemClock.uptimeMillis();
+        listView.onDismissCommitted(dismissPositions, commitStart - dismissEndTime, commitEnd
+                - commitStart);
 
         ViewGroup.LayoutParams lp;
         for (PendingDismissData pendingDismiss : pendingDismisses) {
@@ -424,7 +539,7 @@ class SwipeListViewTouchListener implements View.OnTouchListener {
                 setAlpha(pendingDismiss.view, 1f);
                 setTranslationX(pendingDismiss.view, 0);
                 lp = pendingDismiss.view.getLayoutParams();
-                lp.height = originalHeight;
+                lp.height = pendingDismiss.originalHeight;
                 pendingDismiss.view.setLayoutParams(lp);
             }
         }
@@ -437,13 +552,7 @@ class SwipeListViewTouchListener implements View.OnTouchListener {
      * @return the number of checked items
      */
     protected int getCountChecked() {
-        int count = 0;
-        for (int i = 0; i < checked.size(); i++) {
-            if (checked.get(i)) {
-                count++;
-            }
-        }
-        return count;
+        return states.count(ItemStates.CHECKED);
     }
 
     /**
@@ -452,13 +561,7 @@ class SwipeListViewTouchListener implements View.OnTouchListener {
      * @return a list of the swiped positions
      */
     protected List<Integer> getCheckedPositions() {
-        List<Integer> list = new ArrayList<Integer>();
-        for (int i = 0; i < checked.size(); i++) {
-            if (checked.get(i)) {
-                list.add(i);
-            }
-        }
-        return list;
+        return states.positions(ItemStates.CHECKED);
     }
 
     /**
@@ -469,7 +572,7 @@ class SwipeListViewTouchListener implements View.OnTouchListener {
      * @return {@code true} if item is selected
      */
     protected boolean isChecked(int position) {
-        return position < checked.size() && checked.get(position);
+        return states.get(ItemStates.CHECKED, position);
     }
 
     /**
@@ -481,8 +584,8 @@ class SwipeListViewTouchListener implements View.OnTouchListener {
     private void swapCheckedState(int position) {
         Log.i(LOG_TAG, "Swapping checked state for position " + position);
         int lastCount = getCountChecked();
-        boolean lastChecked = checked.get(position);
-        checked.set(position, !lastChecked);
+        boolean lastChecked = states.get(ItemStates.CHECKED, position);
+        states.set(ItemStates.CHECKED, position, !lastChecked);
         int count = lastChecked ? lastCount - 1 : lastCount + 1;
         if (lastCount == 0 && count == 1) {
             listView.onChoiceStarted();
@@ -497,7 +600,7 @@ class SwipeListViewTouchListener implements View.OnTouchListener {
             listView.setItemChecked(position, !lastChecked);
         }
         listView.onChoiceChanged(position, !lastChecked);
-        initViewSwipeState(movingItem.frontView, position);
+        initViewSwipeState(movingItem.view, position);
     }
 
     /**
@@ -506,11 +609,12 @@ class SwipeListViewTouchListener implements View.OnTouchListener {
     protected void uncheckAllItems() {
         int start = listView.getFirstVisiblePosition();
         int end = listView.getLastVisiblePosition();
-        for (int i = 0; i < checked.size(); i++) {
-            if (checked.get(i) && i >= start && i <= end) {
-                initViewSwipeState(listView.getChildAt(i - start).findViewById(opts.frontViewId), i);
+        List<Integer> checkedPositions = states.positions(ItemStates.CHECKED);
+        states.clear(ItemStates.CHECKED);
+        for (int i : checkedPositions) {
+            if (i >= start && i <= end) {
+                initViewSwipeState(listView.getChildAt(i - start), i);
             }
-            checked.set(i, false);
         }
         listView.onChoiceEnded();
         resetOldActions();
@@ -525,7 +629,7 @@ class SwipeListViewTouchListener implements View.OnTouchListener {
      *            Position of list
      */
     private void openAnimate(View view, int position) {
-        if (!swiped.get(position)) {
+        if (!isSwiped(position)) {
             Log.d(LOG_TAG, "openAnimate: item " + position);
             animateReveal(view, true, false, position);
         }
@@ -540,9 +644,9 @@ class SwipeListViewTouchListener implements View.OnTouchListener {
      *            Position of list
      */
     private void closeAnimate(View view, int position) {
-        if (swiped.get(position)) {
+        if (isSwiped(position)) {
             Log.d(LOG_TAG, "closeAnimate: item " + position);
-            animateReveal(view, true, swipedToRight.get(position), position);
+            animateReveal(view, true, isSwipedToRight(position), position);
         }
     }
 
@@ -562,7 +666,7 @@ class SwipeListViewTouchListener implements View.OnTouchListener {
         Log.d(LOG_TAG, "Animation: "
                 + (changeState ? "swiping " + (toRight ? "right" : "left") : "releasing")
                 + " item " + movingItem.position);
-        int action = swiped.get(movingItem.position) ? SwipeOptions.ACTION_REVEAL
+        int action = isSwiped(movingItem.position) ? SwipeOptions.ACTION_REVEAL
                 : toRight ? currentActionRight : currentActionLeft;
         if (action == SwipeOptions.ACTION_REVEAL) {
             animateReveal(movingItem.frontView, changeState, toRight, movingItem.position);
@@ -590,7 +694,7 @@ class SwipeListViewTouchListener implements View.OnTouchListener {
      */
     private void animateReveal(final View view, final boolean changeState, final boolean toRight,
             final int position) {
-        final boolean isOpen = swiped.get(position);
+        final boolean isOpen = isSwiped(position);
 
         int moveTo = changeState ^ isOpen ? getSwipedOffset(toRight) : 0;
 
@@ -598,11 +702,11 @@ class SwipeListViewTouchListener implements View.OnTouchListener {
             @Override
             public void run() {
                 if (changeState && !isOpen) {
-                    swiped.set(position, true);
-                    swipedToRight.set(position, toRight);
+                    states.set(ItemStates.SWIPED, position, true);
+                    states.set(ItemStates.SWIPED_TO_RIGHT, position, toRight);
                     listView.onSwiped(position, toRight);
                 } else if (changeState && isOpen) {
-                    swiped.set(position, false);
+                    states.set(ItemStates.SWIPED, position, false);
                     listView.onUnswiped(position, !toRight);
                 }
             }
@@ -626,10 +730,10 @@ class SwipeListViewTouchListener implements View.OnTouchListener {
     private void animateDismiss(final View view, final boolean changeState, final boolean toRight,
             final int position) {
 
-        boolean isSwiped = swiped.get(position);
+        boolean isSwiped = isSwiped(position);
         boolean goToSwipedPosition = isSwiped ^ changeState; // XOR for logic lovers!
 
-        int moveTo = goToSwipedPosition ? getSwipedOffset(isSwiped ? swipedToRight.get(position)
+        int moveTo = goToSwipedPosition ? getSwipedOffset(isSwiped ? isSwipedToRight(position)
                 : toRight) : 0;
         /*
          * TODO handle the very special case when swipe mode is 'dismiss' in one way,
@@ -724,17 +828,11 @@ class SwipeListViewTouchListener implements View.OnTouchListener {
      *         {@code false} otherwise.
      */
     private boolean initMovingItem(MotionEvent ev) {
-        View item;
-        int x = (int) ev.getX();
-        int y = (int) ev.getY();
         // find the item located at (x,y)
-        for (int i = 0; i < listView.getChildCount(); i++) {
-            item = listView.getChildAt(i);
-            item.getHitRect(rect);
-            if (!rect.contains(x, y)) {
-                continue; // not this one, keep searching
-            }
-            int touchedItemPosition = listView.getPositionForView(item);
+        int childIndex = itemsIndex.childIndexAt((int) ev.getX(), (int) ev.getY());
+        if (childIndex >= 0) {
+            View item = listView.getChildAt(childIndex);
+            int touchedItemPosition = listView.getFirstVisiblePosition() + childIndex;
             if (touchedItemPosition < listView.getHeaderViewsCount()) {
                 Log.w(LOG_TAG, "Item non initialized for pull because it's a header");
                 return false;
@@ -744,13 +842,11 @@ class SwipeListViewTouchListener implements View.OnTouchListener {
             ListAdapter adapter = listView.getAdapter();
             if (adapter.isEnabled(touchedItemPosition)
                     && adapter.getItemViewType(touchedItemPosition) != AdapterView.ITEM_VIEW_TYPE_IGNORE) {
+                VisibleItemsIndex.ItemViews itemViews = itemsIndex.getItemViews(item);
                 movingItem.view = item;
                 movingItem.position = touchedItemPosition;
-                movingItem.frontView = item.findViewById(opts.frontViewId);
-
-                if (opts.backViewId > 0) {
-                    movingItem.backView = item.findViewById(opts.backViewId);
-                }
+                movingItem.frontView = itemViews.frontView;
+                movingItem.backView = itemViews.backView;
                 Log.d(LOG_TAG, "initMovingItem: initialized to position " + touchedItemPosition);
                 return true;
             } else {
@@ -782,7 +878,7 @@ class SwipeListViewTouchListener implements View.OnTouchListener {
         if (!currentMotion.isDragging()) {
             currentAction = SwipeOptions.ACTION_NONE;
         }
-        if (swiped.get(movingItem.position)) {
+        if (isSwiped(movingItem.position)) {
             currentAction = SwipeOptions.ACTION_REVEAL;
         } else {
             if (currentMotion.toRight) {
@@ -830,6 +926,7 @@ class SwipeListViewTouchListener implements View.OnTouchListener {
     }
 
     private void cancelMotionAndReset() {
+        moveCoalescer.cancel();
         if (currentMotion.isDragging()) {
             animateMovingItem(false, false);
         }
@@ -894,7 +991,7 @@ class SwipeListViewTouchListener implements View.OnTouchListener {
                     currentMotion.dragOriginX = ev.getX();
                     deltaX = 0;
                     // unswipe at once the other items if only 1 swipe is allowed
-                    if (!swiped.get(movingItem.position) && !opts.multipleSelectEnabled) {
+                    if (!isSwiped(movingItem.position) && !opts.multipleSelectEnabled) {
                         unswipeAllItems();
                     }
                     Log.d(LOG_TAG, "Start pulling item " + movingItem.position + " towards "
@@ -908,8 +1005,9 @@ class SwipeListViewTouchListener implements View.OnTouchListener {
 
             // update front view position
             if (currentMotion.isDragging()) {
-                float targetX = getTargetXFromDelta(deltaX, movingItem.position);
-                moveMovingItemToPosition(targetX, currentAction);
+                // the item is moved once per frame, to the last target
+                pendingTargetX = getTargetXFromDelta(deltaX, movingItem.position);
+                moveCoalescer.schedule();
                 return true;
             }
             Log.v(LOG_TAG, "onTouch MOVE returns false");
@@ -947,6 +1045,8 @@ class SwipeListViewTouchListener implements View.OnTouchListener {
                 toRight = false; // doesn't matter
                 Log.i(LOG_TAG, "Release item " + movingItem.position);
             }
+            // the animation starts from the last position of the drag
+            moveCoalescer.flush();
             animateMovingItem(validFling || validSwipe, toRight);
             // TODO check that 'if', what's that doing here?
             if (currentAction == SwipeOptions.ACTION_CHOICE) {
@@ -974,7 +1074,7 @@ class SwipeListViewTouchListener implements View.OnTouchListener {
             return 0;
         }
         // base X position for the current state
-        float currentX = swiped.get(position) ? getSwipedOffset(swipedToRight.get(position)) : 0;
+        float currentX = isSwiped(position) ? getSwipedOffset(isSwipedToRight(position)) : 0;
         // new X position to reach
         float targetX = currentX + deltaX;
 
@@ -1008,8 +1108,8 @@ class SwipeListViewTouchListener implements View.OnTouchListener {
             Log.w(LOG_TAG, "Something's wrong: touch event handled while swipe is disabled");
             return false;
         }
-        if (swiped.get(position)) {
-            boolean swipedRight = swipedToRight.get(position);
+        if (isSwiped(position)) {
+            boolean swipedRight = isSwipedToRight(position);
             if ((!swipedRight && !toRight) || (swipedRight && toRight)) {
                 // trying to close the element the wrong way
                 Log.v(LOG_TAG, "Drag blocked: trying to unswipe a "
@@ -1051,8 +1151,8 @@ class SwipeListViewTouchListener implements View.OnTouchListener {
                     Math.max(0f, Math.min(1f, 1f - 2f * Math.abs(targetX) / viewWidth)));
         } else if (action == SwipeOptions.ACTION_CHOICE) {
             float posX = getX(movingItem.frontView);
-            if (swiped.get(movingItem.position)) {
-                posX -= getSwipedOffset(swipedToRight.get(movingItem.position));
+            if (isSwiped(movingItem.position)) {
+                posX -= getSwipedOffset(isSwipedToRight(movingItem.position));
             }
             if ((currentMotion.toRight && targetX > 0 && posX < DISPLACE_CHOICE)
                     || (!currentMotion.toRight && targetX < 0 && posX > -DISPLACE_CHOICE)
@@ -1072,10 +1172,16 @@ class SwipeListViewTouchListener implements View.OnTouchListener {
     private class PendingDismissData implements Comparable<PendingDismissData> {
         private int position;
         private View view;
+        private int originalHeight;
 
         public PendingDismissData(int position, View view) {
+            this(position, view, 0);
+        }
+
+        public PendingDismissData(int position, View view, int originalHeight) {
             this.position = position;
             this.view = view;
+            this.originalHeight = originalHeight;
         }
 
         @Override
@@ -1141,12 +1247,12 @@ class SwipeListViewTouchListener implements View.OnTouchListener {
 
             boolean velocityToRight = tracker.getXVelocity() > 0;
 
-            if (swiped.get(movingItem.position)) {
-                if (swipedToRight.get(movingItem.position) && velocityToRight) {
+            if (isSwiped(movingItem.position)) {
+                if (isSwipedToRight(movingItem.position) && velocityToRight) {
                     // swiped to right, flinging right
                     return false;
                 }
-                if (!swipedToRight.get(movingItem.position) && !velocityToRight) {
+                if (!isSwipedToRight(movingItem.position) && !velocityToRight) {
                     // swiped to left, flinging left
                     return false;
                 }
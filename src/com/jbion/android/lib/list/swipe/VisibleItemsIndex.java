@@ -0,0 +1,137 @@
+package com.jbion.android.lib.list.swipe;
+
+import android.view.View;
+import android.widget.AdapterView;
+import android.widget.ListView;
+
+import com.jbion.android.pulltorefresh.R;
+
+/**
+ * Index of the visible children of a {@link ListView}, used to find the child under
+ * a touch event with a binary search on the Y coordinate, instead of hit-testing
+ * every child.
+ * <p>
+ * The index is rebuilt after each layout pass. Scrolling offsets all the children
+ * by the same amount, so their bounds are stored relative to the first child. When
+ * children were added or removed without a layout pass (while flinging), the index
+ * is rebuilt on the next lookup.
+ * </p>
+ * The front and back views of each child are cached on the child itself, so that no
+ * view tree search is needed during gestures.
+ */
+class VisibleItemsIndex {
+
+    /**
+     * The front and back views of an item view.
+     */
+    static class ItemViews {
+        final View frontView;
+        final View backView;
+
+        private ItemViews(View frontView, View backView) {
+            this.frontView = frontView;
+            this.backView = backView;
+        }
+    }
+
+    private final ListView listView;
+    private final SwipeOptions opts;
+
+    /** Tops of the children, relative to the top of the first child. */
+    private int[] tops = new int[16];
+    /** Bottoms of the children, relative to the top of the first child. */
+    private int[] bottoms = new int[16];
+    private int count;
+    private int firstPosition = AdapterView.INVALID_POSITION;
+    private View firstChild;
+
+    public VisibleItemsIndex(ListView listView, SwipeOptions opts) {
+        this.listView = listView;
+        this.opts = opts;
+    }
+
+    /**
+     * Rebuilds this index from the current children of the list.
+     */
+    public void rebuild() {
+        count = listView.getChildCount();
+        firstPosition = listView.getFirstVisiblePosition();
+        if (count == 0) {
+            firstChild = null;
+            return;
+        }
+        if (count > tops.length) {
+            int newLength = Math.max(count, tops.length * 2);
+            tops = new int[newLength];
+            bottoms = new int[newLength];
+        }
+        firstChild = listView.getChildAt(0);
+        int base = firstChild.getTop();
+        for (int i = 0; i < count; i++) {
+            View child = listView.getChildAt(i);
+            tops[i] = child.getTop() - base;
+            bottoms[i] = child.getBottom() - base;
+        }
+    }
+
+    private boolean isUpToDate() {
+        int childCount = listView.getChildCount();
+        if (childCount == 0) {
+            return count == 0;
+        }
+        return childCount == count && listView.getChildAt(0) == firstChild
+                && listView.getFirstVisiblePosition() == firstPosition;
+    }
+
+    /**
+     * Finds the child of the list containing the specified point.
+     * 
+     * @param x
+     *            The X coordinate, relative to the list.
+     * @param y
+     *            The Y coordinate, relative to the list.
+     * @return The index of the child (not the adapter position), or -1 if no child
+     *         contains this point.
+     */
+    public int childIndexAt(int x, int y) {
+        if (!isUpToDate()) {
+            rebuild();
+        }
+        if (count == 0) {
+            return -1;
+        }
+        int relativeY = y - firstChild.getTop();
+        int low = 0;
+        int high = count - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (relativeY < tops[mid]) {
+                high = mid - 1;
+            } else if (relativeY >= bottoms[mid]) {
+                low = mid + 1;
+            } else {
+                View child = listView.getChildAt(mid);
+                return x >= child.getLeft() && x < child.getRight() ? mid : -1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the front and back views of the specified item view, looking them up
+     * only the first time this item view is used.
+     * 
+     * @param itemView
+     *            A child of the list.
+     * @return The cached {@link ItemViews} of this item view.
+     */
+    public ItemViews getItemViews(View itemView) {
+        ItemViews views = (ItemViews) itemView.getTag(R.id.swipelistview__item_views);
+        if (views == null) {
+            View backView = opts.backViewId > 0 ? itemView.findViewById(opts.backViewId) : null;
+            views = new ItemViews(itemView.findViewById(opts.frontViewId), backView);
+            itemView.setTag(R.id.swipelistview__item_views, views);
+        }
+        return views;
+    }
+}
@@ -1,27 +1,29 @@
 package com.jbion.android.sample;
 
 import java.text.SimpleDateFormat;
+import java.util.List;
 import java.util.Locale;
 
 import android.app.ListActivity;
 import android.os.Bundle;
 import android.view.Menu;
+import android.view.MenuItem;
 import android.view.View;
 import android.widget.AdapterView;
 import android.widget.AdapterView.OnItemClickListener;
 import android.widget.AdapterView.OnItemLongClickListener;
 import android.widget.ArrayAdapter;
-import android.widget.BaseAdapter;
 import android.widget.ListView;
 import android.widget.Toast;
 
+import com.jbion.android.lib.list.pulltoloadmore.KeysetPagedList;
 import com.jbion.android.lib.list.pulltoloadmore.PullToLoadListView;
-import com.jbion.android.lib.list.pulltoloadmore.PullToLoadListView.OnPullToLoadMoreListener;
 import com.jbion.android.lib.list.pulltorefresh.PullToRefreshListView;
-import com.jbion.android.lib.list.pulltorefresh.PullToRefreshListView.OnPullToRefreshListener;
 import com.jbion.android.lib.list.swipe.SwipeListView;
 import com.jbion.android.pulltorefresh.R;
-import com.jbion.android.sample.pulltorefresh.LoadableList;
+import com.jbion.android.sample.benchmark.AnimationBenchmark;
+import com.jbion.android.sample.benchmark.AnimationBenchmark.OnBenchmarkDoneListener;
+import com.jbion.android.sample.pulltorefresh.MailServer;
 import com.jbion.android.sample.swipe.SwipeAdapter;
 
 public class SampleActivity extends ListActivity {
@@ -33,26 +35,31 @@ public class SampleActivity extends ListActivity {
     private static final int MAX = 40;
     private static final int MIN = 0;
     private static final int STEP = 3;
-    private static final int INIT_LOW = 20;
     private static final int INIT_HIGH = 24;
+    private static final int PAGE_SIZE = 5;
+    private static final int MAX_LOADED = 20;
+
+    private static final int BENCHMARK_ANIMATORS = 150;
+    private static final long BENCHMARK_DURATION = 1000;
 
     // list with the data to show in the listview
-    private LoadableList mListItems;
-    private BaseAdapter mAdapter;
+    private KeysetPagedList<String, Integer> mListItems;
 
     /** Called when the activity is first created. */
     @Override
     public void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_swipe);
-        mListItems = new LoadableList(INIT_LOW, INIT_HIGH, MIN, MAX, STEP, STEP);
-        mAdapter = createAdapter(mListItems);
-        setListAdapter(mAdapter);
+        mListItems = new KeysetPagedList<String, Integer>((PullToLoadListView) getListView(),
+                new MailServer(INIT_HIGH, MIN, MAX, STEP), PAGE_SIZE, MAX_LOADED);
+        setListAdapter(createAdapter(mListItems));
         setRefreshListeners();
         setOnClickListeners();
+        // first page
+        mListItems.onPullToLoadMore();
     }
 
-    private ArrayAdapter<String> createAdapter(LoadableList list) {
+    private ArrayAdapter<String> createAdapter(List<String> list) {
         if (SWIPE) {
             if (getListView() instanceof SwipeListView) {
                 return new SwipeAdapter(this, R.layout.swipe_item_view, R.id.item_text, list);
@@ -80,25 +87,14 @@ public class SampleActivity extends ListActivity {
             ptr.setLastUpdatedDateFormat(new SimpleDateFormat("dd/MM/yyyy HH:mm", Locale
                     .getDefault()));
 
-            ptr.setOnPullToRefreshListener(new OnPullToRefreshListener() {
-                @Override
-                public void onPullToRefresh() {
-                    mListItems.new LoadTopDataTask(ptr, mAdapter).execute();
-                }
-            });
+            ptr.setOnPullToRefreshListener(mListItems);
         }
 
         if (list instanceof PullToLoadListView) {
-            final PullToLoadListView ptl = (PullToLoadListView) list;
+            PullToLoadListView ptl = (PullToLoadListView) list;
 
             ptl.setPullToLoadMoreEnabled(PULL_TO_LOAD);
-
-            ptl.setOnLoadMoreListener(new OnPullToLoadMoreListener() {
-                @Override
-                public void onPullToLoadMore() {
-                    mListItems.new LoadBottomDataTask(ptl, mAdapter).execute();
-                }
-            });
+            ptl.setOnLoadMoreListener(mListItems);
         }
     }
 
@@ -129,4 +125,20 @@ public class SampleActivity extends ListActivity {
         getMenuInflater().inflate(R.menu.swipe, menu);
         return true;
     }
+
+    @Override
+    public boolean onOptionsItemSelected(MenuItem item) {
+        if (item.getItemId() == R.id.action_animation_benchmark) {
+            new AnimationBenchmark(BENCHMARK_ANIMATORS, BENCHMARK_DURATION)
+                    .start(new OnBenchmarkDoneListener() {
+                        @Override
+                        public void onBenchmarkDone(AnimationBenchmark benchmark) {
+                            Toast.makeText(SampleActivity.this, benchmark.toString(),
+                                    Toast.LENGTH_LONG).show();
+                        }
+                    });
+            return true;
+        }
+        return super.onOptionsItemSelected(item);
+    }
 }
@@ -0,0 +1,149 @@
+package com.jbion.android.sample.benchmark;
+
+import java.util.Locale;
+
+import android.util.Log;
+
+import com.nineoldandroids.animation.Animator;
+import com.nineoldandroids.animation.AnimatorIntUpdateListener;
+import com.nineoldandroids.animation.AnimatorListenerAdapter;
+import com.nineoldandroids.animation.ValueAnimator;
+
+/**
+ * Measures the per-frame overhead of the animation framework while many animators
+ * run concurrently, as during a mass dismiss where every dismissed item collapses
+ * its height at the same time.
+ * <p>
+ * The first and last animators of the batch are timestamped on each frame: the
+ * time between them is the cost of processing the whole batch for this frame.
+ * </p>
+ * Must be started on a Looper thread (usually the UI thread).
+ */
+public class AnimationBenchmark {
+
+    private static final String LOG_TAG = AnimationBenchmark.class.getSimpleName();
+
+    public interface OnBenchmarkDoneListener {
+        /**
+         * Called on the UI thread when all the animators have ended.
+         * 
+         * @param benchmark
+         *            The benchmark holding the results.
+         */
+        public void onBenchmarkDone(AnimationBenchmark benchmark);
+    }
+
+    private final int animatorsCount;
+    private final long duration;
+
+    /** Simulates the heights the animators would apply to the dismissed items. */
+    private final int[] heights;
+
+    private long frameStartNanos;
+    private long totalFrameNanos;
+    private long maxFrameNanos;
+    private int framesCount;
+    private int missedFrames;
+
+    /**
+     * Creates a new benchmark.
+     * 
+     * @param animatorsCount
+     *            The number of animators to run concurrently, at least 2.
+     * @param duration
+     *            The duration of each animator, in milliseconds.
+     */
+    public AnimationBenchmark(int animatorsCount, long duration) {
+        if (animatorsCount < 2) {
+            throw new IllegalArgumentException("at least 2 animators are needed");
+        }
+        this.animatorsCount = animatorsCount;
+        this.duration = duration;
+        this.heights = new int[animatorsCount];
+    }
+
+    /**
+     * Starts all the animators at once.
+     * 
+     * @param listener
+     *            The listener to notify with the results, may be {@code null}.
+     */
+    public void start(final OnBenchmarkDoneListener listener) {
+        ValueAnimator.resetMissedFrameCount();
+        for (int i = 0; i < animatorsCount; i++) {
+            final int index = i;
+            ValueAnimator animator = ValueAnimator.ofInt(100, 0).setDuration(duration);
+            animator.addIntUpdateListener(new AnimatorIntUpdateListener() {
+                @Override
+                public void onAnimationUpdate(ValueAnimator animation, int height) {
+                    heights[index] = height;
+                    if (index == 0) {
+                        frameStartNanos = System.nanoTime();
+                    } else if (index == animatorsCount - 1) {
+                        onFrameProcessed(System.nanoTime() - frameStartNanos);
+                    }
+                }
+            });
+            if (i == animatorsCount - 1) {
+                animator.addListener(new AnimatorListenerAdapter() {
+                    @Override
+                    public void onAnimationEnd(Animator animation) {
+                        missedFrames = ValueAnimator.getMissedFrameCount();
+                        Log.i(LOG_TAG, toString());
+                        if (listener != null) {
+                            listener.onBenchmarkDone(AnimationBenchmark.this);
+                        }
+                    }
+                });
+            }
+            animator.start();
+        }
+    }
+
+    private void onFrameProcessed(long frameNanos) {
+        framesCount++;
+        totalFrameNanos += frameNanos;
+        if (frameNanos > maxFrameNanos) {
+            maxFrameNanos = frameNanos;
+        }
+    }
+
+    /**
+     * @return The number of frames measured.
+     */
+    public int getFramesCount() {
+        return framesCount;
+    }
+
+    /**
+     * @return The average time spent processing all the animators during a frame,
+     *         in nanoseconds.
+     */
+    public long getAverageFrameNanos() {
+        return framesCount == 0 ? 0 : totalFrameNanos / framesCount;
+    }
+
+    /**
+     * @return The longest time spent processing all the animators during a frame,
+     *         in nanoseconds.
+     */
+    public long getMaxFrameNanos() {
+        return maxFrameNanos;
+    }
+
+    /**
+     * @return The number of frames that missed their deadline while the benchmark
+     *         was running.
+     */
+    public int getMissedFrames() {
+        return missedFrames;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.US,
+                "%d animators, %d frames: avg %.3f ms/frame, max %.3f ms/frame, %d missed",
+                animatorsCount, framesCount, getAverageFrameNanos() / 1e6,
+                maxFrameNanos / 1e6, missedFrames);
+    }
+}
@@ -0,0 +1,68 @@
+package com.jbion.android.sample.pulltorefresh;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.jbion.android.lib.list.pulltoloadmore.KeysetPagedList.KeysetLoader;
+
+/**
+ * A fake server of emails, numbered from {@code min} to {@code max}. New emails
+ * arrive each time newer ones are requested, until {@code max} is reached.
+ */
+public class MailServer implements KeysetLoader<String, Integer> {
+
+    private static final String BASE_NAME = "Email ";
+
+    private final int min;
+    private final int max;
+    private final int arrivals;
+
+    /** The number of the newest email on the server. */
+    private int newest;
+
+    public MailServer(int initialNewest, int min, int max, int arrivals) {
+        this.min = min;
+        this.max = max;
+        this.arrivals = arrivals;
+        this.newest = initialNewest;
+    }
+
+    private static void timer() {
+        // Simulates a background task
+        try {
+            Thread.sleep(1000);
+        } catch (InterruptedException e) {
+        }
+    }
+
+    @Override
+    public Integer getKey(String item) {
+        return Integer.valueOf(item.substring(BASE_NAME.length()));
+    }
+
+    @Override
+    public synchronized List<String> loadNewer(Integer key, int count) {
+        timer();
+        newest = Math.min(newest + arrivals, max);
+        return names(Math.min(newest, key + count), key + 1);
+    }
+
+    @Override
+    public synchronized List<String> loadOlder(Integer key, int count) {
+        timer();
+        int from = key == null ? newest : key - 1;
+        return names(from, Math.max(min, from - count + 1));
+    }
+
+    /**
+     * Returns the names from the number {@code from} down to the number {@code to},
+     * both inclusive.
+     */
+    private static List<String> names(int from, int to) {
+        List<String> names = new ArrayList<String>(Math.max(0, from - to + 1));
+        for (int i = from; i >= to; i--) {
+            names.add(BASE_NAME + i);
+        }
+        return names;
+    }
+}
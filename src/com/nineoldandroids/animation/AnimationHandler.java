@@ -11,10 +11,36 @@ import android.view.animation.AnimationUtils;
  * active animations. This approach ensures that the setting of animation values
  * will happen on the UI thread and that all animations will share the same times
  * for calculating their values, which makes synchronizing animations possible.
- * 
+ * <p>
+ * There is one handler per thread, which also holds the animation queues of that
+ * thread. This way, the queues are reached with a single {@link ThreadLocal} lookup
+ * per lifecycle call, and none during the frames.
+ * </p>
  */
-@SuppressWarnings("unchecked")
 class AnimationHandler extends Handler {
+
+    // The list of all active animations on this thread
+    final ArrayList<ValueAnimator> mAnimations = new ArrayList<ValueAnimator>();
+
+    // The set of animations to be started on the next animation frame
+    ArrayList<ValueAnimator> mPendingAnimations = new ArrayList<ValueAnimator>();
+    // The batch of pending animations being started, swapped with
+    // mPendingAnimations so that starting a batch allocates nothing
+    private ArrayList<ValueAnimator> mStartingAnims = new ArrayList<ValueAnimator>();
+
+    /*
+     * Internal collections used to avoid set collisions as animations start and end
+     * while being processed.
+     */
+    final ArrayList<ValueAnimator> mDelayedAnims = new ArrayList<ValueAnimator>();
+    private final ArrayList<ValueAnimator> mEndingAnims = new ArrayList<ValueAnimator>();
+    private final ArrayList<ValueAnimator> mReadyAnims = new ArrayList<ValueAnimator>();
+
+    private final FrameScheduler mFrameScheduler = FrameScheduler.create(this);
+
+    /** Time of the last processed frame, in milliseconds. */
+    private long mLastFrameTime;
+
     /**
      * There are only two messages that we care about: ANIMATION_START and
      * ANIMATION_FRAME. The START message is sent when an animation's start()
@@ -30,117 +56,152 @@ class AnimationHandler extends Handler {
     @Override
     public void handleMessage(Message msg) {
         boolean callAgain = true;
-        ArrayList<ValueAnimator> animations = ValueAnimator.sAnimations.get();
-        ArrayList<ValueAnimator> delayedAnims = ValueAnimator.sDelayedAnims.get();
+        ArrayList<ValueAnimator> animations = mAnimations;
+        ArrayList<ValueAnimator> delayedAnims = mDelayedAnims;
         switch (msg.what) {
         // TODO: should we avoid sending frame message when starting if we
         // were already running?
         case ValueAnimator.ANIMATION_START:
-            ArrayList<ValueAnimator> pendingAnimations = ValueAnimator.sPendingAnimations.get();
             if (animations.size() > 0 || delayedAnims.size() > 0) {
                 callAgain = false;
             }
-            // pendingAnims holds any animations that have requested to be
-            // started
-            // We're going to clear sPendingAnimations, but starting animation
-            // may
-            // cause more to be added to the pending list (for example, if one
-            // animation
-            // starting triggers another starting). So we loop until
-            // sPendingAnimations
-            // is empty.
-            while (pendingAnimations.size() > 0) {
-                ArrayList<ValueAnimator> pendingCopy = (ArrayList<ValueAnimator>) pendingAnimations
-                        .clone();
-                pendingAnimations.clear();
-                int count = pendingCopy.size();
+            // mPendingAnimations holds any animations that have requested to be
+            // started. Starting an animation may cause more to be added to the
+            // pending list (for example, if one animation starting triggers
+            // another starting), so the pending list is swapped with an empty
+            // buffer before each batch, and we loop until it stays empty.
+            while (mPendingAnimations.size() > 0) {
+                ArrayList<ValueAnimator> startingAnims = mPendingAnimations;
+                mPendingAnimations = mStartingAnims;
+                mStartingAnims = startingAnims;
+                int count = startingAnims.size();
                 for (int i = 0; i < count; ++i) {
-                    ValueAnimator anim = pendingCopy.get(i);
+                    ValueAnimator anim = startingAnims.get(i);
+                    if (!anim.mInPendingList) {
+                        // canceled or ended since it was started
+                        continue;
+                    }
+                    anim.mInPendingList = false;
                     // If the animation has a startDelay, place it on the delayed
                     // list
                     if (anim.mStartDelay == 0) {
-                        anim.startAnimation();
-                    } else {
+                        anim.startAnimation(this);
+                    } else if (!anim.mInDelayedList) {
+                        anim.mInDelayedList = true;
                         delayedAnims.add(anim);
                     }
                 }
+                startingAnims.clear();
             }
             // fall through to process first frame of new animations
             //$FALL-THROUGH$
         case ValueAnimator.ANIMATION_FRAME:
-            // currentTime holds the common time for all animations processed
-            // during this frame
             long currentTime = AnimationUtils.currentAnimationTimeMillis();
-            ArrayList<ValueAnimator> readyAnims = ValueAnimator.sReadyAnims.get();
-            ArrayList<ValueAnimator> endingAnims = ValueAnimator.sEndingAnims.get();
-
-            // First, process animations currently sitting on the delayed queue,
-            // adding
-            // them to the active animations if they are ready
-            int numDelayedAnims = delayedAnims.size();
-            for (int i = 0; i < numDelayedAnims; ++i) {
-                ValueAnimator anim = delayedAnims.get(i);
-                if (anim.delayedAnimationFrame(currentTime)) {
-                    readyAnims.add(anim);
-                }
-            }
-            int numReadyAnims = readyAnims.size();
-            if (numReadyAnims > 0) {
-                for (int i = 0; i < numReadyAnims; ++i) {
-                    ValueAnimator anim = readyAnims.get(i);
-                    anim.startAnimation();
-                    anim.mRunning = true;
-                    delayedAnims.remove(anim);
-                }
-                readyAnims.clear();
+            if (msg.what == ValueAnimator.ANIMATION_FRAME) {
+                ((HandlerFrameScheduler) mFrameScheduler).onFrameMessage(currentTime);
+            } else {
+                doAnimationFrame(currentTime, callAgain);
             }
+            break;
+        }
+    }
 
-            // Now process all active animations. The return value from
-            // animationFrame()
-            // tells the handler whether it should now be ended
-            int numAnims = animations.size();
-            int i = 0;
-            while (i < numAnims) {
-                ValueAnimator anim = animations.get(i);
-                if (anim.animationFrame(currentTime)) {
-                    endingAnims.add(anim);
-                }
-                if (animations.size() == numAnims) {
-                    ++i;
-                } else {
-                    // An animation might be canceled or ended by client code
-                    // during the animation frame. Check to see if this happened
-                    // by
-                    // seeing whether the current index is the same as it was
-                    // before
-                    // calling animationFrame(). Another approach would be to
-                    // copy
-                    // animations to a temporary list and process that list
-                    // instead,
-                    // but that entails garbage and processing overhead that
-                    // would
-                    // be nice to avoid.
-                    --numAnims;
-                    endingAnims.remove(anim);
-                }
+    /**
+     * Processes one frame for all active and delayed animations, and requests the
+     * next frame if some animations are still running.
+     * 
+     * @param currentTime
+     *            The common time for all animations processed during this frame, in
+     *            milliseconds.
+     */
+    void doAnimationFrame(long currentTime) {
+        doAnimationFrame(currentTime, true);
+    }
+
+    private void doAnimationFrame(long currentTime, boolean callAgain) {
+        // vsync timestamps may be slightly older than the time the last animations
+        // were started at, never let the animation time go backwards
+        if (currentTime < mLastFrameTime) {
+            currentTime = mLastFrameTime;
+        }
+        mLastFrameTime = currentTime;
+        ArrayList<ValueAnimator> animations = mAnimations;
+        ArrayList<ValueAnimator> delayedAnims = mDelayedAnims;
+        ArrayList<ValueAnimator> readyAnims = mReadyAnims;
+        ArrayList<ValueAnimator> endingAnims = mEndingAnims;
+
+        // First, process animations currently sitting on the delayed queue,
+        // adding
+        // them to the active animations if they are ready
+        int numDelayedAnims = delayedAnims.size();
+        for (int i = 0; i < numDelayedAnims; ++i) {
+            ValueAnimator anim = delayedAnims.get(i);
+            if (anim.delayedAnimationFrame(currentTime)) {
+                readyAnims.add(anim);
             }
-            if (endingAnims.size() > 0) {
-                for (i = 0; i < endingAnims.size(); ++i) {
-                    endingAnims.get(i).endAnimation();
-                }
-                endingAnims.clear();
+        }
+        int numReadyAnims = readyAnims.size();
+        if (numReadyAnims > 0) {
+            for (int i = 0; i < numReadyAnims; ++i) {
+                ValueAnimator anim = readyAnims.get(i);
+                anim.startAnimation(this);
+                anim.mRunning = true;
+                anim.mInDelayedList = false;
+                delayedAnims.remove(anim);
             }
+            readyAnims.clear();
+        }
 
-            // If there are still active or delayed animations, call the handler
-            // again
-            // after the frameDelay
-            if (callAgain && (!animations.isEmpty() || !delayedAnims.isEmpty())) {
-                sendEmptyMessageDelayed(
-                        ValueAnimator.ANIMATION_FRAME,
-                        Math.max(0, ValueAnimator.sFrameDelay
-                                - (AnimationUtils.currentAnimationTimeMillis() - currentTime)));
+        // Now process all active animations. The return value from
+        // animationFrame()
+        // tells the handler whether it should now be ended
+        int numAnims = animations.size();
+        int i = 0;
+        while (i < numAnims) {
+            ValueAnimator anim = animations.get(i);
+            if (anim.animationFrame(currentTime)) {
+                endingAnims.add(anim);
+            }
+            if (animations.size() == numAnims) {
+                ++i;
+            } else {
+                // An animation might be canceled or ended by client code
+                // during the animation frame. Check to see if this happened
+                // by
+                // seeing whether the current index is the same as it was
+                // before
+                // calling animationFrame(). Another approach would be to
+                // copy
+                // animations to a temporary list and process that list
+                // instead,
+                // but that entails garbage and processing overhead that
+                // would
+                // be nice to avoid.
+                --numAnims;
+                endingAnims.remove(anim);
             }
-            break;
         }
+        if (endingAnims.size() > 0) {
+            for (i = 0; i < endingAnims.size(); ++i) {
+                endingAnims.get(i).endAnimation(this);
+            }
+            endingAnims.clear();
+        }
+
+        // If there are still active or delayed animations, request the next
+        // frame
+        if (animations.isEmpty() && delayedAnims.isEmpty()) {
+            mFrameScheduler.onIdle();
+        } else if (callAgain) {
+            mFrameScheduler.scheduleNextFrame(currentTime);
+        }
+    }
+
+    int getMissedFrameCount() {
+        return mFrameScheduler.getMissedFrameCount();
+    }
+
+    void resetMissedFrameCount() {
+        mFrameScheduler.resetMissedFrameCount();
     }
-}
\ No newline at end of file
+}
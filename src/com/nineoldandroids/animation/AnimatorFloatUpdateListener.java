@@ -0,0 +1,23 @@
+package com.nineoldandroids.animation;
+
+/**
+ * Same as {@link AnimatorUpdateListener}, but receives the float value of the
+ * animation directly, which avoids boxing it on every frame for float animations.
+ * 
+ * @see ValueAnimator#addFloatUpdateListener(AnimatorFloatUpdateListener)
+ */
+public interface AnimatorFloatUpdateListener {
+    /**
+     * <p>
+     * Notifies the occurrence of another frame of the animation.
+     * </p>
+     * 
+     * @param animation
+     *            The animation which was updated.
+     * @param value
+     *            The value most recently calculated for the first property being
+     *            animated, as returned by {@link ValueAnimator#getAnimatedFloatValue()}.
+     */
+    void onAnimationUpdate(ValueAnimator animation, float value);
+
+}
@@ -0,0 +1,23 @@
+package com.nineoldandroids.animation;
+
+/**
+ * Same as {@link AnimatorUpdateListener}, but receives the int value of the
+ * animation directly, which avoids boxing it on every frame for int animations.
+ * 
+ * @see ValueAnimator#addIntUpdateListener(AnimatorIntUpdateListener)
+ */
+public interface AnimatorIntUpdateListener {
+    /**
+     * <p>
+     * Notifies the occurrence of another frame of the animation.
+     * </p>
+     * 
+     * @param animation
+     *            The animation which was updated.
+     * @param value
+     *            The value most recently calculated for the first property being
+     *            animated, as returned by {@link ValueAnimator#getAnimatedIntValue()}.
+     */
+    void onAnimationUpdate(ValueAnimator animation, int value);
+
+}
@@ -0,0 +1,60 @@
+package com.nineoldandroids.animation;
+
+import android.annotation.TargetApi;
+import android.os.Build;
+import android.view.Choreographer;
+
+/**
+ * {@link FrameScheduler} aligning the animation frames on the display's vsync,
+ * using the {@link Choreographer} (API 16+).
+ * <p>
+ * The display's frame interval is not public, so it is estimated as the shortest
+ * interval observed between two consecutive frames (starting from 60 Hz). This
+ * makes jank detection work on high refresh rate displays as well.
+ * </p>
+ */
+@TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+class ChoreographerFrameScheduler extends FrameScheduler implements Choreographer.FrameCallback {
+
+    /** Shortest accepted frame interval estimate (240 Hz), in nanoseconds. */
+    private static final long MIN_FRAME_INTERVAL_NANOS = 1000000000L / 240;
+
+    private final Choreographer mChoreographer = Choreographer.getInstance();
+
+    private long mFrameIntervalNanos = DEFAULT_FRAME_INTERVAL_NANOS;
+    /** Vsync time of the last processed frame, or -1 after an idle period. */
+    private long mLastFrameTimeNanos = -1;
+    private boolean mScheduled;
+
+    ChoreographerFrameScheduler(AnimationHandler handler) {
+        super(handler);
+    }
+
+    @Override
+    void scheduleNextFrame(long frameTime) {
+        if (!mScheduled) {
+            mScheduled = true;
+            mChoreographer.postFrameCallback(this);
+        }
+    }
+
+    @Override
+    void onIdle() {
+        mLastFrameTimeNanos = -1;
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        mScheduled = false;
+        if (mLastFrameTimeNanos >= 0) {
+            long interval = frameTimeNanos - mLastFrameTimeNanos;
+            if (interval >= MIN_FRAME_INTERVAL_NANOS && interval < mFrameIntervalNanos) {
+                mFrameIntervalNanos = interval;
+            }
+            // rounded number of vsyncs between the 2 frames, minus the expected one
+            addMissedFrames((int) ((interval + mFrameIntervalNanos / 2) / mFrameIntervalNanos) - 1);
+        }
+        mLastFrameTimeNanos = frameTimeNanos;
+        mHandler.doAnimationFrame(frameTimeNanos / NANOS_PER_MS);
+    }
+}
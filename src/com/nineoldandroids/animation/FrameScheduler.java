@@ -0,0 +1,80 @@
+package com.nineoldandroids.animation;
+
+import android.os.Build;
+
+/**
+ * Schedules the animation frames processed by the {@link AnimationHandler}, and
+ * counts the frames that missed their deadline (jank).
+ * 
+ * <p>
+ * On API 16+, frames are aligned on the display's vsync via the
+ * {@link android.view.Choreographer}. On older versions, frames are posted on the
+ * handler every {@link ValueAnimator#sFrameDelay} milliseconds.
+ * </p>
+ */
+abstract class FrameScheduler {
+
+    /** Nominal frame interval of a 60 Hz display, in nanoseconds. */
+    static final long DEFAULT_FRAME_INTERVAL_NANOS = 1000000000L / 60;
+
+    static final long NANOS_PER_MS = 1000000L;
+
+    final AnimationHandler mHandler;
+
+    /** The number of frames that missed their deadline since the last reset. */
+    private int mMissedFrames;
+
+    FrameScheduler(AnimationHandler handler) {
+        mHandler = handler;
+    }
+
+    /**
+     * Creates the best {@link FrameScheduler} available on this device.
+     * 
+     * @param handler
+     *            The handler to run the frames on.
+     * @return a new {@link FrameScheduler}.
+     */
+    static FrameScheduler create(AnimationHandler handler) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+            return new ChoreographerFrameScheduler(handler);
+        }
+        return new HandlerFrameScheduler(handler);
+    }
+
+    /**
+     * Requests the next animation frame. Once the frame is due,
+     * {@link AnimationHandler#doAnimationFrame(long)} is called.
+     * 
+     * @param frameTime
+     *            The animation time of the frame that was just processed, in
+     *            milliseconds.
+     */
+    abstract void scheduleNextFrame(long frameTime);
+
+    /**
+     * Called when there are no more animations to run. The next frame won't be
+     * compared to the last one for jank detection.
+     */
+    abstract void onIdle();
+
+    /**
+     * Records that some frames missed their deadline.
+     * 
+     * @param count
+     *            The number of missed frames.
+     */
+    void addMissedFrames(int count) {
+        if (count > 0) {
+            mMissedFrames += count;
+        }
+    }
+
+    int getMissedFrameCount() {
+        return mMissedFrames;
+    }
+
+    void resetMissedFrameCount() {
+        mMissedFrames = 0;
+    }
+}
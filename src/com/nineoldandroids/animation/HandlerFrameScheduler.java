@@ -0,0 +1,46 @@
+package com.nineoldandroids.animation;
+
+import android.view.animation.AnimationUtils;
+
+/**
+ * {@link FrameScheduler} sending delayed messages to the {@link AnimationHandler}
+ * every {@link ValueAnimator#sFrameDelay} milliseconds. Used before API 16, when the
+ * Choreographer is not available.
+ */
+class HandlerFrameScheduler extends FrameScheduler {
+
+    /** The time the next frame is due at, or -1 if none is scheduled. */
+    private long mDeadline = -1;
+
+    HandlerFrameScheduler(AnimationHandler handler) {
+        super(handler);
+    }
+
+    @Override
+    void scheduleNextFrame(long frameTime) {
+        long now = AnimationUtils.currentAnimationTimeMillis();
+        long delay = Math.max(0, ValueAnimator.sFrameDelay - (now - frameTime));
+        mDeadline = now + delay;
+        mHandler.sendEmptyMessageDelayed(ValueAnimator.ANIMATION_FRAME, delay);
+    }
+
+    @Override
+    void onIdle() {
+        mDeadline = -1;
+    }
+
+    /**
+     * Called when the {@link ValueAnimator#ANIMATION_FRAME} message is received.
+     * 
+     * @param frameTime
+     *            The current animation time, in milliseconds.
+     */
+    void onFrameMessage(long frameTime) {
+        if (mDeadline >= 0) {
+            // each whole frame delay past the deadline is a missed frame
+            addMissedFrames((int) ((frameTime - mDeadline) / ValueAnimator.sFrameDelay));
+            mDeadline = -1;
+        }
+        mHandler.doAnimationFrame(frameTime);
+    }
+}
@@ -85,59 +85,9 @@ public class ValueAnimator extends Animator {
      */
     private long mSeekTime = -1;
 
-    // TODO: We access the following ThreadLocal variables often, some of them on
-    // every update.
-    // If ThreadLocal access is significantly expensive, we may want to put all of
-    // these
-    // fields into a structure sot hat we just access ThreadLocal once to get the
-    // reference
-    // to that structure, then access the structure directly for each field.
-
     // The static sAnimationHandler processes the internal timing loop on which all
-    // animations
-    // are based
-    private static ThreadLocal<AnimationHandler> sAnimationHandler = new ThreadLocal<AnimationHandler>();
-
-    // The per-thread list of all active animations
-    static final ThreadLocal<ArrayList<ValueAnimator>> sAnimations = new ThreadLocal<ArrayList<ValueAnimator>>() {
-        @Override
-        protected ArrayList<ValueAnimator> initialValue() {
-            return new ArrayList<ValueAnimator>();
-        }
-    };
-
-    // The per-thread set of animations to be started on the next animation frame
-    static final ThreadLocal<ArrayList<ValueAnimator>> sPendingAnimations = new ThreadLocal<ArrayList<ValueAnimator>>() {
-        @Override
-        protected ArrayList<ValueAnimator> initialValue() {
-            return new ArrayList<ValueAnimator>();
-        }
-    };
-
-    /**
-     * Internal per-thread collections used to avoid set collisions as animations
-     * start and end while being processed.
-     */
-    static final ThreadLocal<ArrayList<ValueAnimator>> sDelayedAnims = new ThreadLocal<ArrayList<ValueAnimator>>() {
-        @Override
-        protected ArrayList<ValueAnimator> initialValue() {
-            return new ArrayList<ValueAnimator>();
-        }
-    };
-
-    static final ThreadLocal<ArrayList<ValueAnimator>> sEndingAnims = new ThreadLocal<ArrayList<ValueAnimator>>() {
-        @Override
-        protected ArrayList<ValueAnimator> initialValue() {
-            return new ArrayList<ValueAnimator>();
-        }
-    };
-
-    static final ThreadLocal<ArrayList<ValueAnimator>> sReadyAnims = new ThreadLocal<ArrayList<ValueAnimator>>() {
-        @Override
-        protected ArrayList<ValueAnimator> initialValue() {
-            return new ArrayList<ValueAnimator>();
-        }
-    };
+    // animations are based, and holds the animation queues of its thread
+    private static final ThreadLocal<AnimationHandler> sAnimationHandler = new ThreadLocal<AnimationHandler>();
 
     // The time interpolator to be used if none is set on the animation
     private static final/* Time */Interpolator sDefaultInterpolator = new AccelerateDecelerateInterpolator();
@@ -193,6 +143,14 @@ public class ValueAnimator extends Animator {
      */
     boolean mRunning = false;
 
+    /*
+     * Membership flags for the queues of the AnimationHandler, so that checking
+     * whether this animation is queued does not need to scan the queues.
+     */
+    boolean mInPendingList = false;
+    boolean mInDelayedList = false;
+    boolean mInAnimationList = false;
+
     /**
      * Flag that denotes whether the animation is set up and ready to go. Used to set
      * up animation that has not yet been started.
@@ -237,6 +195,17 @@ public class ValueAnimator extends Animator {
      */
     private ArrayList<AnimatorUpdateListener> mUpdateListeners = null;
 
+    /**
+     * The set of listeners to be sent the int value of the animation on each frame.
+     */
+    private ArrayList<AnimatorIntUpdateListener> mIntUpdateListeners = null;
+
+    /**
+     * The set of listeners to be sent the float value of the animation on each
+     * frame.
+     */
+    private ArrayList<AnimatorFloatUpdateListener> mFloatUpdateListeners = null;
+
     /**
      * The property/value sets being animated.
      */
@@ -266,7 +235,7 @@ public class ValueAnimator extends Animator {
      * This value used used with the {@link #setRepeatCount(int)} property to repeat
      * the animation indefinitely.
      */
-    private static final int INFINITE = -1;
+    public static final int INFINITE = -1;
 
     /**
      * Creates a new ValueAnimator object. This default constructor is primarily for
@@ -315,6 +284,43 @@ public class ValueAnimator extends Animator {
         return anim;
     }
 
+    /**
+     * Returns the animation handler of the calling thread, creating it if needed.
+     */
+    private static AnimationHandler getOrCreateAnimationHandler() {
+        AnimationHandler animationHandler = sAnimationHandler.get();
+        if (animationHandler == null) {
+            animationHandler = new AnimationHandler();
+            sAnimationHandler.set(animationHandler);
+        }
+        return animationHandler;
+    }
+
+    /**
+     * Returns the number of animation frames that missed their deadline on the
+     * calling thread since the last call to {@link #resetMissedFrameCount()}. On API
+     * 16+, a frame is missed when the animations skip a display vsync.
+     * 
+     * @return The number of missed frames, or 0 if no animation ever ran on this
+     *         thread.
+     */
+    public static int getMissedFrameCount() {
+        AnimationHandler animationHandler = sAnimationHandler.get();
+        return animationHandler == null ? 0 : animationHandler.getMissedFrameCount();
+    }
+
+    /**
+     * Resets the missed frames counter of the calling thread.
+     * 
+     * @see #getMissedFrameCount()
+     */
+    public static void resetMissedFrameCount() {
+        AnimationHandler animationHandler = sAnimationHandler.get();
+        if (animationHandler != null) {
+            animationHandler.resetMissedFrameCount();
+        }
+    }
+
     /**
      * Sets int values that will be animated between. A single value implies that
      * that value is the one being animated to. However, this is not typically useful
@@ -516,6 +522,34 @@ public class ValueAnimator extends Animator {
         return null;
     }
 
+    /**
+     * Same as {@link #getAnimatedValue()}, but returns the value as an int. For int
+     * animations, the value is not boxed.
+     * 
+     * @return The value most recently calculated for the first property being
+     *         animated, converted to an int, or 0 if there is no property.
+     */
+    public int getAnimatedIntValue() {
+        if (mValues != null && mValues.length > 0) {
+            return mValues[0].getAnimatedIntValue();
+        }
+        return 0;
+    }
+
+    /**
+     * Same as {@link #getAnimatedValue()}, but returns the value as a float. For
+     * float animations, the value is not boxed.
+     * 
+     * @return The value most recently calculated for the first property being
+     *         animated, converted to a float, or 0 if there is no property.
+     */
+    public float getAnimatedFloatValue() {
+        if (mValues != null && mValues.length > 0) {
+            return mValues[0].getAnimatedFloatValue();
+        }
+        return 0f;
+    }
+
     /**
      * Sets how many times the animation should be repeated. If the repeat count is
      * 0, the animation is never repeated. If the repeat count is greater than 0 or
@@ -546,6 +580,40 @@ public class ValueAnimator extends Animator {
         mUpdateListeners.add(listener);
     }
 
+    /**
+     * Adds a listener to be sent the int value of the animation on every frame,
+     * after the values for the animation have been calculated. Unlike
+     * {@link AnimatorUpdateListener}s reading {@link #getAnimatedValue()}, this
+     * does not box the value of int animations.
+     * 
+     * @param listener
+     *            the listener to be added to the current set of listeners for this
+     *            animation.
+     */
+    public void addIntUpdateListener(AnimatorIntUpdateListener listener) {
+        if (mIntUpdateListeners == null) {
+            mIntUpdateListeners = new ArrayList<AnimatorIntUpdateListener>();
+        }
+        mIntUpdateListeners.add(listener);
+    }
+
+    /**
+     * Adds a listener to be sent the float value of the animation on every frame,
+     * after the values for the animation have been calculated. Unlike
+     * {@link AnimatorUpdateListener}s reading {@link #getAnimatedValue()}, this
+     * does not box the value of float animations.
+     * 
+     * @param listener
+     *            the listener to be added to the current set of listeners for this
+     *            animation.
+     */
+    public void addFloatUpdateListener(AnimatorFloatUpdateListener listener) {
+        if (mFloatUpdateListeners == null) {
+            mFloatUpdateListeners = new ArrayList<AnimatorFloatUpdateListener>();
+        }
+        mFloatUpdateListeners.add(listener);
+    }
+
     /**
      * The time interpolator used in calculating the elapsed fraction of this
      * animation. The interpolator determines whether the animation runs with linear
@@ -589,7 +657,12 @@ public class ValueAnimator extends Animator {
         mCurrentIteration = 0;
         mPlayingState = STOPPED;
         mStartedDelay = false;
-        sPendingAnimations.get().add(this);
+        AnimationHandler animationHandler = getOrCreateAnimationHandler();
+        boolean startPending = !animationHandler.mPendingAnimations.isEmpty();
+        if (!mInPendingList) {
+            mInPendingList = true;
+            animationHandler.mPendingAnimations.add(this);
+        }
         if (mStartDelay == 0) {
             // This sets the initial value of the animation, prior to actually
             // starting it running
@@ -606,12 +679,10 @@ public class ValueAnimator extends Animator {
                 }
             }
         }
-        AnimationHandler animationHandler = sAnimationHandler.get();
-        if (animationHandler == null) {
-            animationHandler = new AnimationHandler();
-            sAnimationHandler.set(animationHandler);
+        if (!startPending) {
+            // a single message starts all the animations pending by then
+            animationHandler.sendEmptyMessage(ANIMATION_START);
         }
-        animationHandler.sendEmptyMessage(ANIMATION_START);
     }
 
     @Override
@@ -624,8 +695,7 @@ public class ValueAnimator extends Animator {
         // Only cancel if the animation is actually running or has been started and
         // is about
         // to run
-        if (mPlayingState != STOPPED || sPendingAnimations.get().contains(this)
-                || sDelayedAnims.get().contains(this)) {
+        if (mPlayingState != STOPPED || mInPendingList || mInDelayedList) {
             // Only notify listeners if the animator has actually started
             if (mRunning && mListeners != null) {
                 ArrayList<AnimatorListener> tmpListeners = (ArrayList<AnimatorListener>) mListeners
@@ -634,17 +704,18 @@ public class ValueAnimator extends Animator {
                     listener.onAnimationCancel(this);
                 }
             }
-            endAnimation();
+            endAnimation(getOrCreateAnimationHandler());
         }
     }
 
     @Override
     public void end() {
-        if (!sAnimations.get().contains(this) && !sPendingAnimations.get().contains(this)) {
+        AnimationHandler animationHandler = getOrCreateAnimationHandler();
+        if (!mInAnimationList && !mInPendingList) {
             // Special case if the animation has not yet started; get it ready for
             // ending
             mStartedDelay = false;
-            startAnimation();
+            startAnimation(animationHandler);
         } else if (!mInitialized) {
             initAnimation();
         }
@@ -656,7 +727,7 @@ public class ValueAnimator extends Animator {
         } else {
             animateValue(1f);
         }
-        endAnimation();
+        endAnimation(animationHandler);
     }
 
     @Override
@@ -667,11 +738,24 @@ public class ValueAnimator extends Animator {
     /**
      * Called internally to end an animation by removing it from the animations list.
      * Must be called on the UI thread.
+     * 
+     * @param handler
+     *            The animation handler of the current thread.
      */
-    void endAnimation() {
-        sAnimations.get().remove(this);
-        sPendingAnimations.get().remove(this);
-        sDelayedAnims.get().remove(this);
+    void endAnimation(AnimationHandler handler) {
+        if (mInAnimationList) {
+            mInAnimationList = false;
+            handler.mAnimations.remove(this);
+        }
+        if (mInPendingList) {
+            // might be in the batch being started, which skips it once unflagged
+            mInPendingList = false;
+            handler.mPendingAnimations.remove(this);
+        }
+        if (mInDelayedList) {
+            mInDelayedList = false;
+            handler.mDelayedAnims.remove(this);
+        }
         mPlayingState = STOPPED;
         if (mRunning && mListeners != null) {
             ArrayList<AnimatorListener> tmpListeners = (ArrayList<AnimatorListener>) mListeners
@@ -687,10 +771,16 @@ public class ValueAnimator extends Animator {
     /**
      * Called internally to start an animation by adding it to the active animations
      * list. Must be called on the UI thread.
+     * 
+     * @param handler
+     *            The animation handler of the current thread.
      */
-    void startAnimation() {
+    void startAnimation(AnimationHandler handler) {
         initAnimation();
-        sAnimations.get().add(this);
+        if (!mInAnimationList) {
+            mInAnimationList = true;
+            handler.mAnimations.add(this);
+        }
         if (mStartDelay > 0 && mListeners != null) {
             // Listeners were already notified in start() if startDelay is 0; this is
             // just for delayed animations
@@ -831,6 +921,20 @@ public class ValueAnimator extends Animator {
                 mUpdateListeners.get(i).onAnimationUpdate(this);
             }
         }
+        if (mIntUpdateListeners != null) {
+            int value = getAnimatedIntValue();
+            int numListeners = mIntUpdateListeners.size();
+            for (int i = 0; i < numListeners; ++i) {
+                mIntUpdateListeners.get(i).onAnimationUpdate(this, value);
+            }
+        }
+        if (mFloatUpdateListeners != null) {
+            float value = getAnimatedFloatValue();
+            int numListeners = mFloatUpdateListeners.size();
+            for (int i = 0; i < numListeners; ++i) {
+                mFloatUpdateListeners.get(i).onAnimationUpdate(this, value);
+            }
+        }
     }
 
     @Override
@@ -844,12 +948,23 @@ public class ValueAnimator extends Animator {
                 anim.mUpdateListeners.add(oldListeners.get(i));
             }
         }
+        if (mIntUpdateListeners != null) {
+            anim.mIntUpdateListeners = new ArrayList<AnimatorIntUpdateListener>(
+                    mIntUpdateListeners);
+        }
+        if (mFloatUpdateListeners != null) {
+            anim.mFloatUpdateListeners = new ArrayList<AnimatorFloatUpdateListener>(
+                    mFloatUpdateListeners);
+        }
         anim.mSeekTime = -1;
         anim.mPlayingBackwards = false;
         anim.mCurrentIteration = 0;
         anim.mInitialized = false;
         anim.mPlayingState = STOPPED;
         anim.mStartedDelay = false;
+        anim.mInPendingList = false;
+        anim.mInDelayedList = false;
+        anim.mInAnimationList = false;
         PropertyValuesHolder[] oldValues = mValues;
         if (oldValues != null) {
             int numValues = oldValues.length;